@@ -0,0 +1,27 @@
+package com.github.francofabio.vraptor.jackson.processor;
+
+import javax.lang.model.element.Element;
+
+/**
+ * A writer could not be generated; reported as a compilation error on the
+ * element.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class GenerationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Element element;
+
+    GenerationException(String message, Element element) {
+        super(message);
+        this.element = element;
+    }
+
+    Element getElement() {
+        return element;
+    }
+
+}
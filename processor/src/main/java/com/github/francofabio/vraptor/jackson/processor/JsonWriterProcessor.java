@@ -0,0 +1,159 @@
+package com.github.francofabio.vraptor.jackson.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+import com.github.francofabio.vraptor.jackson.serialization.GenerateJsonWriter;
+import com.github.francofabio.vraptor.jackson.serialization.GeneratedJsonWriters;
+import com.github.francofabio.vraptor.jackson.serialization.JsonProfile;
+import com.github.francofabio.vraptor.jackson.serialization.JsonProfiles;
+
+/**
+ * Generates a {@link com.github.francofabio.vraptor.jackson.serialization.GeneratedJsonWriter}
+ * for the default projection of each type annotated with
+ * {@link GenerateJsonWriter}, and for each {@link JsonProfile} declared on the
+ * type for itself. Invalid profiles and inaccessible getters are reported as
+ * compilation errors.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class JsonWriterProcessor extends AbstractProcessor {
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(GenerateJsonWriter.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeModel model = new TypeModel(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateJsonWriter.class)) {
+            try {
+                generateAll(model, (TypeElement) element);
+            } catch (GenerationException e) {
+                processingEnv.getMessager().printMessage(Kind.ERROR, e.getMessage(), e.getElement());
+            }
+        }
+        return true;
+    }
+
+    private void generateAll(TypeModel model, TypeElement type) {
+        checkAccessible(type);
+        generate(model, type, null, new ProjectionBuilder(model, type));
+        for (JsonProfile profile : profilesOf(type)) {
+            if (!isDeclaredFor(profile, type)) {
+                continue;
+            }
+            try {
+                ProjectionBuilder builder = new ProjectionBuilder(model, type);
+                builder.include(profile.include());
+                builder.exclude(profile.exclude());
+                generate(model, type, profile.name(), builder);
+            } catch (GenerationException e) {
+                throw new GenerationException("Invalid serialization profile " + profile.name() + ": "
+                        + e.getMessage(), type);
+            }
+        }
+    }
+
+    private void generate(TypeModel model, TypeElement type, String profile, ProjectionBuilder builder) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String writerName = GeneratedJsonWriters.writerName(binaryName, profile);
+        String simpleName = (packageName.length() > 0) ? writerName.substring(packageName.length() + 1) : writerName;
+
+        String source = new WriterSource(model, packageName, simpleName, type, builder.getTree()).generate();
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(writerName, type);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(source);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new GenerationException("Unable to write " + writerName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Writers live in the package of the type and read it through its
+     * getters, so the type must be visible there.
+     */
+    private void checkAccessible(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS) {
+            throw new GenerationException("@GenerateJsonWriter is only supported on classes", type);
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new GenerationException("@GenerateJsonWriter is not supported on generic types", type);
+        }
+        for (Element e = type; e.getKind() == ElementKind.CLASS; e = e.getEnclosingElement()) {
+            TypeElement current = (TypeElement) e;
+            if (current.getModifiers().contains(Modifier.PRIVATE)
+                    || (current.getNestingKind() == NestingKind.MEMBER && !current.getModifiers().contains(
+                            Modifier.STATIC))) {
+                throw new GenerationException("@GenerateJsonWriter requires a non private top level or static class",
+                        type);
+            }
+            if (current.getNestingKind() == NestingKind.TOP_LEVEL) {
+                break;
+            }
+        }
+    }
+
+    private static List<JsonProfile> profilesOf(TypeElement type) {
+        List<JsonProfile> result = new ArrayList<JsonProfile>();
+        JsonProfile profile = type.getAnnotation(JsonProfile.class);
+        if (profile != null) {
+            result.add(profile);
+        }
+        JsonProfiles profiles = type.getAnnotation(JsonProfiles.class);
+        if (profiles != null) {
+            Collections.addAll(result, profiles.value());
+        }
+        return result;
+    }
+
+    /**
+     * Profiles declared for other types are registered for them, so no writer
+     * of this type would use them.
+     */
+    private boolean isDeclaredFor(JsonProfile profile, TypeElement type) {
+        try {
+            Class<?> declared = profile.type();
+            return void.class.equals(declared)
+                    || processingEnv.getElementUtils().getBinaryName(type).contentEquals(declared.getName());
+        } catch (MirroredTypeException e) {
+            TypeMirror declared = e.getTypeMirror();
+            return declared.getKind() == TypeKind.VOID
+                    || processingEnv.getTypeUtils().isSameType(declared, type.asType());
+        }
+    }
+
+}
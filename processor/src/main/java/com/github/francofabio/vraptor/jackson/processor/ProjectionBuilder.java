@@ -0,0 +1,128 @@
+package com.github.francofabio.vraptor.jackson.processor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.TypeElement;
+
+import com.github.francofabio.vraptor.jackson.serialization.NamedTreeNode;
+import com.github.francofabio.vraptor.jackson.serialization.PathPattern;
+
+/**
+ * Builds the field tree of a projection at compile time, following the
+ * include and exclude rules of <code>JacksonSerializer</code>.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class ProjectionBuilder {
+
+    private final TypeModel model;
+    private final TypeElement rootType;
+    private final NamedTreeNode tree;
+
+    /**
+     * Starts with the default projection: the fields of the root type written by default.
+     */
+    ProjectionBuilder(TypeModel model, TypeElement rootType) {
+        this.model = model;
+        this.rootType = rootType;
+        this.tree = new NamedTreeNode(null, null);
+        includePrimitiveFields(rootType, null);
+    }
+
+    NamedTreeNode getTree() {
+        return tree;
+    }
+
+    ProjectionBuilder include(String... fields) {
+        for (String field : fields) {
+            if (PathPattern.isPattern(field)) {
+                addFields(pattern(field), rootType, new ArrayList<String>(), new HashSet<TypeElement>());
+            } else {
+                addField(field);
+            }
+        }
+        return this;
+    }
+
+    ProjectionBuilder exclude(String... fields) {
+        for (String field : fields) {
+            if (PathPattern.isPattern(field)) {
+                tree.removeChilds(pattern(field));
+            } else {
+                resolve(field);
+                tree.removeChild(field);
+            }
+        }
+        return this;
+    }
+
+    private PathPattern pattern(String field) {
+        try {
+            return new PathPattern(field);
+        } catch (RuntimeException e) {
+            throw new GenerationException("Invalid field pattern: " + field, rootType);
+        }
+    }
+
+    private PropertyModel resolve(String fieldName) {
+        TypeElement type = rootType;
+        PropertyModel property = null;
+        for (String p : fieldName.split("\\.")) {
+            property = (type != null) ? model.getProperty(type, p) : null;
+            if (property == null) {
+                throw new GenerationException("Field " + fieldName + " not found. Class: " + rootType, rootType);
+            }
+            type = property.getElementElement();
+        }
+        return property;
+    }
+
+    private void addField(String fieldName) {
+        PropertyModel property = resolve(fieldName);
+        if (property.getElementElement() != null) {
+            includePrimitiveFields(property.getElementElement(), fieldName);
+        } else {
+            tree.addChild(fieldName);
+        }
+    }
+
+    private void includePrimitiveFields(TypeElement type, String root) {
+        for (PropertyModel property : model.getProperties(type)) {
+            if (property.isIncludedByDefault()) {
+                tree.addChild((root != null) ? root + "." + property.getName() : property.getName());
+            }
+        }
+    }
+
+    private void addFields(PathPattern pattern, TypeElement type, List<String> path, Set<TypeElement> walking) {
+        walking.add(type);
+        for (PropertyModel property : model.getProperties(type)) {
+            path.add(property.getName());
+            String[] propertyPath = path.toArray(new String[path.size()]);
+            if (pattern.matches(propertyPath)) {
+                addField(join(path));
+            } else if (property.getElementElement() != null && !walking.contains(property.getElementElement())
+                    && pattern.matchesBelow(propertyPath)) {
+                addFields(pattern, property.getElementElement(), path, walking);
+            }
+            path.remove(path.size() - 1);
+        }
+        walking.remove(type);
+    }
+
+    private static String join(List<String> path) {
+        StringBuilder b = new StringBuilder();
+        for (String p : path) {
+            if (b.length() > 0) {
+                b.append(".");
+            }
+            b.append(p);
+        }
+        return b.toString();
+    }
+
+}
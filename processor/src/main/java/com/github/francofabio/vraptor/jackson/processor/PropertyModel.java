@@ -0,0 +1,75 @@
+package com.github.francofabio.vraptor.jackson.processor;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Compile-time counterpart of <code>PropertyMetadata</code>: a field with its
+ * leaf classification and element type, resolved with the same rules.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class PropertyModel {
+
+    enum Kind {
+        OBJECT, COLLECTION, ARRAY, MAP
+    }
+
+    private final VariableElement field;
+    private final boolean leaf;
+    private final boolean includedByDefault;
+    private final Kind kind;
+    private final TypeMirror elementType;
+    private final TypeElement elementElement;
+
+    PropertyModel(VariableElement field, boolean leaf, boolean includedByDefault, Kind kind, TypeMirror elementType,
+            TypeElement elementElement) {
+        this.field = field;
+        this.leaf = leaf;
+        this.includedByDefault = includedByDefault;
+        this.kind = kind;
+        this.elementType = elementType;
+        this.elementElement = elementElement;
+    }
+
+    String getName() {
+        return field.getSimpleName().toString();
+    }
+
+    VariableElement getField() {
+        return field;
+    }
+
+    /**
+     * @return whether the declared type is a leaf, written as a whole
+     */
+    boolean isLeaf() {
+        return leaf;
+    }
+
+    /**
+     * @return whether the property is written without being included
+     */
+    boolean isIncludedByDefault() {
+        return includedByDefault;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    TypeMirror getElementType() {
+        return elementType;
+    }
+
+    /**
+     * @return the element type when it is walked field by field, or
+     *         <code>null</code> when it is a leaf
+     */
+    TypeElement getElementElement() {
+        return elementElement;
+    }
+
+}
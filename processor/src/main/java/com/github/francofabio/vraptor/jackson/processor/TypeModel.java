@@ -0,0 +1,289 @@
+package com.github.francofabio.vraptor.jackson.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.github.francofabio.vraptor.jackson.processor.PropertyModel.Kind;
+
+/**
+ * Reads the properties of types with the rules of <code>MetadataRegistry</code>,
+ * so the generated writers see the same fields, in the same order, as the
+ * reflective serializer.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class TypeModel {
+
+    /*
+     * Types whose subtypes are leaves, as in MetadataRegistry.isLeaf
+     */
+    private static final String[] LEAF_SUPERTYPES = { "java.lang.Number", "java.util.Date", "java.util.Calendar",
+            "java.util.Map", "java.io.InputStream", "java.io.File", "java.sql.Blob" };
+    private static final String[] LEAF_TYPES = { "java.lang.String", "java.lang.Boolean", "java.lang.Character",
+            "java.lang.Object", "com.github.francofabio.vraptor.jackson.serialization.Base64File" };
+    /*
+     * Leaves left out of default projections, as in MetadataRegistry.isDefaultLeaf
+     */
+    private static final String[] INCLUDED_ONLY_TYPES = { "java.io.InputStream", "java.io.File", "java.sql.Blob",
+            "com.github.francofabio.vraptor.jackson.serialization.Base64File" };
+
+    private final Elements elements;
+    private final Types types;
+    private final List<TypeMirror> leafSupertypes;
+    private final List<TypeMirror> includedOnlyTypes;
+    private final TypeMirror collectionType;
+    private final TypeMirror mapType;
+    private final Map<TypeElement, List<PropertyModel>> properties;
+
+    TypeModel(Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+        this.leafSupertypes = new ArrayList<TypeMirror>();
+        for (String name : LEAF_SUPERTYPES) {
+            TypeElement element = elements.getTypeElement(name);
+            if (element != null) {
+                leafSupertypes.add(types.erasure(element.asType()));
+            }
+        }
+        this.includedOnlyTypes = new ArrayList<TypeMirror>();
+        for (String name : INCLUDED_ONLY_TYPES) {
+            TypeElement element = elements.getTypeElement(name);
+            if (element != null) {
+                includedOnlyTypes.add(types.erasure(element.asType()));
+            }
+        }
+        this.collectionType = types.erasure(elements.getTypeElement("java.util.Collection").asType());
+        this.mapType = types.erasure(elements.getTypeElement("java.util.Map").asType());
+        this.properties = new HashMap<TypeElement, List<PropertyModel>>();
+    }
+
+    boolean isLeaf(TypeMirror type) {
+        TypeMirror erased = types.erasure(type);
+        if (erased.getKind().isPrimitive()) {
+            return true;
+        }
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return isLeaf(((ArrayType) erased).getComponentType());
+        }
+        if (erased.getKind() != TypeKind.DECLARED) {
+            return true;
+        }
+        TypeElement element = (TypeElement) types.asElement(erased);
+        if (element.getKind() == ElementKind.ENUM) {
+            return true;
+        }
+        for (TypeMirror supertype : leafSupertypes) {
+            if (types.isAssignable(erased, supertype)) {
+                return true;
+            }
+        }
+        String name = element.getQualifiedName().toString();
+        for (String leaf : LEAF_TYPES) {
+            if (leaf.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the leaf is in default projections: arrays other than
+     * <code>byte[]</code>, streams, files and blobs are only written when
+     * included.
+     */
+    boolean isDefaultLeaf(TypeMirror type) {
+        TypeMirror erased = types.erasure(type);
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return ((ArrayType) erased).getComponentType().getKind() == TypeKind.BYTE;
+        }
+        if (!isLeaf(erased)) {
+            return false;
+        }
+        for (TypeMirror includedOnly : includedOnlyTypes) {
+            if (types.isAssignable(erased, includedOnly)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isCollection(TypeMirror type) {
+        return types.isAssignable(types.erasure(type), collectionType);
+    }
+
+    boolean isMap(TypeMirror type) {
+        return types.isAssignable(types.erasure(type), mapType);
+    }
+
+    /**
+     * The instance fields of the type and its superclasses, subclass first.
+     */
+    List<PropertyModel> getProperties(TypeElement type) {
+        List<PropertyModel> result = properties.get(type);
+        if (result == null) {
+            result = new ArrayList<PropertyModel>();
+            if (!isLeaf(type.asType())) {
+                for (TypeElement current = type; current != null; current = superclassOf(current)) {
+                    for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                        if (!field.getModifiers().contains(Modifier.STATIC)) {
+                            result.add(createProperty(field));
+                        }
+                    }
+                }
+            }
+            properties.put(type, result);
+        }
+        return result;
+    }
+
+    PropertyModel getProperty(TypeElement type, String name) {
+        for (PropertyModel property : getProperties(type)) {
+            if (property.getName().equals(name)) {
+                return property;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The getter used to read the property, as found by the reflective
+     * serializer, or <code>null</code> when there is no getter.
+     */
+    ExecutableElement getGetter(TypeElement owner, PropertyModel property) {
+        String name = property.getName();
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        List<ExecutableElement> methods = ElementFilter.methodsIn(elements.getAllMembers(owner));
+        for (String getter : new String[] { "get" + capitalized, "is" + capitalized }) {
+            for (ExecutableElement method : methods) {
+                if (method.getSimpleName().contentEquals(getter) && method.getParameters().isEmpty()
+                        && !method.getModifiers().contains(Modifier.STATIC)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    boolean isAssignable(TypeMirror type, TypeMirror target) {
+        return types.isAssignable(types.erasure(type), types.erasure(target));
+    }
+
+    boolean isPrimitive(String typeName) {
+        for (TypeKind kind : TypeKind.values()) {
+            if (kind.isPrimitive() && kind.name().toLowerCase().equals(typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The name of the type as declared in the generated source. Generic types
+     * get wildcards instead of their arguments, which may be type variables of
+     * the model, so the writers do not use raw types.
+     */
+    String typeName(TypeMirror type) {
+        TypeMirror erased = types.erasure(type);
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        String name = erased.toString();
+        if (erased.getKind() != TypeKind.DECLARED) {
+            return name;
+        }
+        int parameters = ((TypeElement) types.asElement(erased)).getTypeParameters().size();
+        if (parameters == 0) {
+            return name;
+        }
+        StringBuilder b = new StringBuilder(name).append("<?");
+        for (int i = 1; i < parameters; i++) {
+            b.append(", ?");
+        }
+        return b.append(">").toString();
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) types.asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private PropertyModel createProperty(VariableElement field) {
+        TypeMirror type = field.asType();
+        TypeMirror erased = types.erasure(type);
+        Kind kind = Kind.OBJECT;
+        TypeMirror elementType = erased;
+
+        if (isMap(erased)) {
+            kind = Kind.MAP;
+            elementType = mapValueTypeOf(type, erased);
+        } else if (isCollection(erased)) {
+            kind = Kind.COLLECTION;
+            List<? extends TypeMirror> arguments = (type.getKind() == TypeKind.DECLARED) ? ((DeclaredType) type)
+                    .getTypeArguments() : null;
+            if (arguments != null && !arguments.isEmpty()) {
+                elementType = elementTypeOf(arguments.get(0), erased);
+            }
+        } else if (erased.getKind() == TypeKind.ARRAY && !isLeaf(erased)) {
+            kind = Kind.ARRAY;
+            elementType = types.erasure(((ArrayType) erased).getComponentType());
+        }
+
+        TypeElement elementElement = null;
+        if (!isLeaf(elementType) && elementType.getKind() == TypeKind.DECLARED) {
+            elementElement = (TypeElement) types.asElement(elementType);
+        }
+        return new PropertyModel(field, isLeaf(erased), isDefaultLeaf(erased), kind, elementType, elementElement);
+    }
+
+    private TypeMirror elementTypeOf(TypeMirror argument, TypeMirror fieldType) {
+        if (argument.getKind() == TypeKind.TYPEVAR) {
+            return fieldType;
+        }
+        if (argument.getKind() == TypeKind.WILDCARD) {
+            TypeMirror bound = ((WildcardType) argument).getExtendsBound();
+            if (bound == null || bound.getKind() != TypeKind.DECLARED) {
+                return elements.getTypeElement("java.lang.Object").asType();
+            }
+            return types.erasure(bound);
+        }
+        return types.erasure(argument);
+    }
+
+    /**
+     * Only plain classes are walked into, as in MetadataRegistry.
+     */
+    private TypeMirror mapValueTypeOf(TypeMirror type, TypeMirror fieldType) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            if (arguments.size() == 2 && arguments.get(1).getKind() == TypeKind.DECLARED) {
+                DeclaredType value = (DeclaredType) arguments.get(1);
+                if (value.getTypeArguments().isEmpty() && !isCollection(value)) {
+                    return value;
+                }
+            }
+        }
+        return fieldType;
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.github.francofabio.vraptor.jackson.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+
+import com.github.francofabio.vraptor.jackson.processor.PropertyModel.Kind;
+import com.github.francofabio.vraptor.jackson.serialization.NamedTreeNode;
+
+/**
+ * Emits the source of a writer for one projection. Every node of the field
+ * tree that has children becomes a method writing one object, so the output
+ * is the one of the reflective walk without looking up properties at run
+ * time. Null values are left out, as the writers are only used with the
+ * <code>NON_NULL</code> inclusion.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class WriterSource {
+
+    private final TypeModel model;
+    private final String packageName;
+    private final String simpleName;
+    private final TypeElement rootType;
+    private final NamedTreeNode tree;
+
+    private final Map<String, String> names = new LinkedHashMap<String, String>();
+    private final List<StringBuilder> methods = new ArrayList<StringBuilder>();
+
+    WriterSource(TypeModel model, String packageName, String simpleName, TypeElement rootType, NamedTreeNode tree) {
+        this.model = model;
+        this.packageName = packageName;
+        this.simpleName = simpleName;
+        this.rootType = rootType;
+        this.tree = tree;
+    }
+
+    String generate() {
+        String root = rootType.getQualifiedName().toString();
+        addObjectMethod(rootType, tree);
+
+        StringBuilder b = new StringBuilder();
+        if (packageName.length() > 0) {
+            b.append("package ").append(packageName).append(";\n\n");
+        }
+        b.append("import java.io.IOException;\n\n");
+        b.append("import org.codehaus.jackson.JsonGenerator;\n");
+        b.append("import org.codehaus.jackson.io.SerializedString;\n");
+        b.append("import org.codehaus.jackson.map.SerializerProvider;\n\n");
+        b.append("import com.github.francofabio.vraptor.jackson.serialization.GeneratedJsonWriter;\n\n");
+        b.append("/**\n * Generated by ").append(JsonWriterProcessor.class.getName()).append(" for ").append(root)
+                .append(".\n */\n");
+        b.append("public final class ").append(simpleName).append(" implements GeneratedJsonWriter<").append(root)
+                .append("> {\n\n");
+        for (Map.Entry<String, String> name : names.entrySet()) {
+            b.append("    private static final SerializedString ").append(name.getValue())
+                    .append(" = new SerializedString(\"").append(name.getKey()).append("\");\n");
+        }
+        if (!names.isEmpty()) {
+            b.append("\n");
+        }
+        b.append("    @Override\n");
+        b.append("    public void write(").append(root)
+                .append(" value, JsonGenerator g, SerializerProvider p) throws IOException {\n");
+        b.append("        write0(value, g, p);\n");
+        b.append("    }\n");
+        for (StringBuilder method : methods) {
+            b.append("\n").append(method);
+        }
+        b.append("\n}\n");
+        return b.toString();
+    }
+
+    /**
+     * @return the name of the method writing the fields of the node
+     */
+    private String addObjectMethod(TypeElement type, NamedTreeNode node) {
+        String method = "write" + methods.size();
+        StringBuilder b = new StringBuilder();
+        methods.add(b);
+
+        b.append("    private static void ").append(method).append("(").append(type.getQualifiedName())
+                .append(" v, JsonGenerator g, SerializerProvider p) throws IOException {\n");
+        b.append("        g.writeStartObject();\n");
+        for (NamedTreeNode child : node.getChilds()) {
+            PropertyModel property = model.getProperty(type, child.getName());
+            ExecutableElement getter = model.getGetter(type, property);
+            if (getter == null) {
+                throw new GenerationException("Could not find getter for field " + property.getName(),
+                        property.getField());
+            }
+            if (!model.isAssignable(getter.getReturnType(), property.getField().asType())) {
+                throw new GenerationException("The getter of field " + property.getName()
+                        + " must return the type of the field", getter);
+            }
+            String valueType = model.typeName(getter.getReturnType());
+            String field = fieldName(child.getName());
+            String value = "v." + getter.getSimpleName() + "()";
+            b.append("        {\n");
+            if (child.containsChilds()) {
+                b.append("            ").append(valueType).append(" x = ").append(value).append(";\n");
+                b.append("            if (x != null) {\n");
+                b.append("                g.writeFieldName(").append(field).append(");\n");
+                appendContainer(b, property, child);
+                b.append("            }\n");
+            } else {
+                appendLeaf(b, field, valueType, value);
+            }
+            b.append("        }\n");
+        }
+        b.append("        g.writeEndObject();\n");
+        b.append("    }\n");
+        return method;
+    }
+
+    private void appendContainer(StringBuilder b, PropertyModel property, NamedTreeNode node) {
+        String elementType = property.getElementElement().getQualifiedName().toString();
+        String method = addObjectMethod(property.getElementElement(), node);
+        if (property.getKind() == Kind.COLLECTION || property.getKind() == Kind.ARRAY) {
+            String loopType = (property.getKind() == Kind.ARRAY) ? elementType : "Object";
+            String element = (property.getKind() == Kind.ARRAY) ? "e" : "(" + elementType + ") e";
+            b.append("                g.writeStartArray();\n");
+            b.append("                for (").append(loopType).append(" e : x) {\n");
+            b.append("                    if (e == null) {\n");
+            b.append("                        g.writeNull();\n");
+            b.append("                    } else {\n");
+            b.append("                        ").append(method).append("(").append(element).append(", g, p);\n");
+            b.append("                    }\n");
+            b.append("                }\n");
+            b.append("                g.writeEndArray();\n");
+        } else if (property.getKind() == Kind.MAP) {
+            b.append("                g.writeStartObject();\n");
+            b.append("                for (java.util.Map.Entry<?, ?> e : x.entrySet()) {\n");
+            b.append("                    if (e.getValue() != null) {\n");
+            b.append("                        g.writeFieldName(String.valueOf(e.getKey()));\n");
+            b.append("                        ").append(method).append("((").append(elementType)
+                    .append(") e.getValue(), g, p);\n");
+            b.append("                    }\n");
+            b.append("                }\n");
+            b.append("                g.writeEndObject();\n");
+        } else {
+            b.append("                ").append(method).append("(x, g, p);\n");
+        }
+    }
+
+    /**
+     * The common scalar types are written directly; any other value goes
+     * through the serializers of the provider, as in the reflective walk.
+     */
+    private void appendLeaf(StringBuilder b, String field, String valueType, String value) {
+        String write = null;
+        if ("int".equals(valueType) || "long".equals(valueType) || "double".equals(valueType)) {
+            write = "g.writeNumber(x)";
+        } else if ("boolean".equals(valueType)) {
+            write = "g.writeBoolean(x)";
+        }
+        if (write != null) {
+            b.append("            ").append(valueType).append(" x = ").append(value).append(";\n");
+            b.append("            g.writeFieldName(").append(field).append(");\n");
+            b.append("            ").append(write).append(";\n");
+            return;
+        }
+
+        if ("java.lang.String".equals(valueType)) {
+            write = "g.writeString(x)";
+        } else if ("java.lang.Integer".equals(valueType)) {
+            write = "g.writeNumber(x.intValue())";
+        } else if ("java.lang.Long".equals(valueType)) {
+            write = "g.writeNumber(x.longValue())";
+        } else if ("java.lang.Double".equals(valueType)) {
+            write = "g.writeNumber(x.doubleValue())";
+        } else if ("java.lang.Boolean".equals(valueType)) {
+            write = "g.writeBoolean(x.booleanValue())";
+        } else if (model.isPrimitive(valueType)) {
+            valueType = "Object";
+            write = "p.defaultSerializeValue(x, g)";
+        } else {
+            write = "p.defaultSerializeValue(x, g)";
+        }
+        b.append("            ").append(valueType).append(" x = ").append(value).append(";\n");
+        b.append("            if (x != null) {\n");
+        b.append("                g.writeFieldName(").append(field).append(");\n");
+        b.append("                ").append(write).append(";\n");
+        b.append("            }\n");
+    }
+
+    private String fieldName(String name) {
+        String constant = names.get(name);
+        if (constant == null) {
+            constant = "F" + names.size();
+            names.put(name, constant);
+        }
+        return constant;
+    }
+
+}
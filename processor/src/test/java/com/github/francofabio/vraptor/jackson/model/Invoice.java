@@ -0,0 +1,143 @@
+package com.github.francofabio.vraptor.jackson.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.francofabio.vraptor.jackson.serialization.GenerateJsonWriter;
+import com.github.francofabio.vraptor.jackson.serialization.JsonProfile;
+import com.github.francofabio.vraptor.jackson.serialization.JsonProfiles;
+
+@GenerateJsonWriter
+@JsonProfiles({ @JsonProfile(name = "summary", include = "customer", exclude = { "note", "customer.id" }),
+        @JsonProfile(name = "full", include = { "lines.supplier", "backorders", "contacts" }, exclude = "**.id") })
+public class Invoice {
+
+    public enum Status {
+        OPEN, PAID
+    }
+
+    private Long id;
+    private int number;
+    private double total;
+    private boolean paid;
+    private String note;
+    private Date issued;
+    private Status status;
+    private List<String> tags;
+    private Party customer;
+    private List<InvoiceLine> lines;
+    private InvoiceLine[] backorders;
+    private Map<String, Party> contacts;
+
+    public Invoice() {
+        this.lines = new ArrayList<InvoiceLine>();
+        this.contacts = new LinkedHashMap<String, Party>();
+    }
+
+    public Invoice(Long id, int number, Party customer) {
+        this();
+        this.id = id;
+        this.number = number;
+        this.customer = customer;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public void setTotal(double total) {
+        this.total = total;
+    }
+
+    public boolean isPaid() {
+        return paid;
+    }
+
+    public void setPaid(boolean paid) {
+        this.paid = paid;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public Date getIssued() {
+        return issued;
+    }
+
+    public void setIssued(Date issued) {
+        this.issued = issued;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public Party getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(Party customer) {
+        this.customer = customer;
+    }
+
+    public List<InvoiceLine> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<InvoiceLine> lines) {
+        this.lines = lines;
+    }
+
+    public InvoiceLine[] getBackorders() {
+        return backorders;
+    }
+
+    public void setBackorders(InvoiceLine[] backorders) {
+        this.backorders = backorders;
+    }
+
+    public Map<String, Party> getContacts() {
+        return contacts;
+    }
+
+    public void setContacts(Map<String, Party> contacts) {
+        this.contacts = contacts;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.github.francofabio.vraptor.jackson.model;
+
+public class InvoiceLine {
+    private String sku;
+    private Integer quantity;
+    private float discount;
+    private Party supplier;
+
+    public InvoiceLine() {
+    }
+
+    public InvoiceLine(String sku, Integer quantity, Party supplier) {
+        this.sku = sku;
+        this.quantity = quantity;
+        this.supplier = supplier;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public float getDiscount() {
+        return discount;
+    }
+
+    public void setDiscount(float discount) {
+        this.discount = discount;
+    }
+
+    public Party getSupplier() {
+        return supplier;
+    }
+
+    public void setSupplier(Party supplier) {
+        this.supplier = supplier;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.francofabio.vraptor.jackson.model.Invoice;
+import com.github.francofabio.vraptor.jackson.model.InvoiceLine;
+import com.github.francofabio.vraptor.jackson.model.Party;
+
+/**
+ * The generated writers must write exactly what the reflective walk writes.
+ */
+public class GeneratedJsonWriterTest {
+
+    private ObjectMapper mapper;
+
+    @Before
+    public void setup() {
+        this.mapper = JacksonSerialization.createObjectMapper();
+    }
+
+    private Invoice createInvoice(Long id) {
+        Invoice invoice = new Invoice(id, id.intValue() * 10, new Party(id + 100, "Customer " + id));
+        invoice.setTotal(12.5);
+        invoice.setPaid(true);
+        invoice.setNote("Note " + id);
+        invoice.setIssued(new Date(0));
+        invoice.setStatus(Invoice.Status.PAID);
+        invoice.setTags(Arrays.asList("a", "b"));
+        invoice.getLines().add(new InvoiceLine("SKU-1", 2, new Party(7L, "Supplier")));
+        invoice.getLines().add(null);
+        invoice.getLines().add(new InvoiceLine("SKU-2", null, null));
+        invoice.setBackorders(new InvoiceLine[] { new InvoiceLine("SKU-3", 1, null) });
+        invoice.getContacts().put("billing", new Party(8L, "Billing"));
+        invoice.getContacts().put("none", null);
+        return invoice;
+    }
+
+    private String generated(Object object, String profile, boolean withoutRoot) {
+        StringWriter writer = new StringWriter();
+        JacksonSerializer serializer = new JacksonSerializer(writer, mapper, withoutRoot).profile(profile);
+        serializer.from(object).serialize();
+        return writer.toString();
+    }
+
+    private String reflective(Object object, String profile, boolean withoutRoot) {
+        StringWriter writer = new StringWriter();
+        JacksonSerializer serializer = new JacksonSerializer(writer, mapper, withoutRoot) {
+            @Override
+            protected GeneratedJsonWriter<Object> findGeneratedWriter() {
+                return null;
+            }
+        }.profile(profile);
+        serializer.from(object).serialize();
+        return writer.toString();
+    }
+
+    private void assertSameOutput(Object object, String profile) {
+        assertThat(generated(object, profile, false), is(equalTo(reflective(object, profile, false))));
+        assertThat(generated(object, profile, true), is(equalTo(reflective(object, profile, true))));
+    }
+
+    @Test
+    public void shouldGenerateWritersForTheDefaultProjectionAndProfiles() {
+        assertThat(GeneratedJsonWriters.find(Invoice.class, null), is(notNullValue()));
+        assertThat(GeneratedJsonWriters.find(Invoice.class, "summary"), is(notNullValue()));
+        assertThat(GeneratedJsonWriters.find(Invoice.class, "full"), is(notNullValue()));
+        assertThat(GeneratedJsonWriters.find(Invoice.class, "other"), is(nullValue()));
+        assertThat(GeneratedJsonWriters.find(Party.class, null), is(nullValue()));
+    }
+
+    @Test
+    public void shouldWriteTheDefaultProjectionAsTheReflectiveSerializer() {
+        assertSameOutput(createInvoice(1L), null);
+        assertSameOutput(new Invoice(), null);
+    }
+
+    @Test
+    public void shouldWriteProfilesAsTheReflectiveSerializer() {
+        Invoice invoice = createInvoice(1L);
+        assertSameOutput(invoice, "summary");
+        assertSameOutput(invoice, "full");
+
+        invoice.setCustomer(null);
+        invoice.setLines(null);
+        invoice.setBackorders(null);
+        assertSameOutput(invoice, "summary");
+        assertSameOutput(invoice, "full");
+    }
+
+    @Test
+    public void shouldWriteCollectionsAsTheReflectiveSerializer() {
+        assertSameOutput(Arrays.asList(createInvoice(1L), null, createInvoice(2L)), "full");
+        assertSameOutput(new Invoice[] { createInvoice(1L), createInvoice(2L) }, "summary");
+    }
+
+    @Test
+    public void shouldUseTheGeneratedWriterOnlyForUnchangedProjections() {
+        String expected = "{\"invoice\":{\"id\":1}}";
+
+        StringWriter writer = new StringWriter();
+        new JacksonSerializer(writer, mapper).from(createInvoice(1L)).exclude("number", "total", "paid", "note",
+                "issued", "status", "tags", "contacts").serialize();
+
+        assertThat(writer.toString(), is(equalTo(expected)));
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import static br.com.caelum.vraptor.view.Results.json;
+
+import br.com.caelum.vraptor.Get;
+import br.com.caelum.vraptor.Resource;
+import br.com.caelum.vraptor.Result;
+
+/**
+ * Sample resource of the load test: the product list and single customers.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Resource
+public class CatalogController {
+
+    private final Result result;
+
+    public CatalogController(Result result) {
+        this.result = result;
+    }
+
+    @Get("/products")
+    public void products(int size) {
+        result.use(json()).from(Samples.products(size), "products").include("group").serialize();
+    }
+
+    @Get("/customers/{id}")
+    public void customer(Long id) {
+        result.use(json()).from(Samples.customer(id)).include("address").serialize();
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A request driven by the load client: its method, path and, for requests
+ * that send a representation, the JSON body.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class Endpoint {
+
+    private final String name;
+    private final String method;
+    private final String path;
+    private final byte[] body;
+
+    Endpoint(String name, String method, String path, String body) {
+        this.name = name;
+        this.method = method;
+        this.path = path;
+        try {
+            this.body = (body != null) ? body.getBytes("UTF-8") : null;
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Endpoint get(String name, String path) {
+        return new Endpoint(name, "GET", path, null);
+    }
+
+    static Endpoint post(String name, String path, String body) {
+        return new Endpoint(name, "POST", path, body);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the body sent, or <code>null</code> when there is none
+     */
+    byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + method + " " + path + ")";
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * The requests measured for one endpoint: their latencies, the bytes read
+ * from the responses and the failures. Each client thread records into its
+ * own instance, and the instances are merged once the threads are done.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class EndpointStats {
+
+    static final String HEADER = String.format("%-14s %9s %7s %10s %8s %8s %8s %8s %10s", "endpoint", "requests",
+            "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "bytes/req");
+
+    private final String name;
+    private long[] latencies;
+    private int count;
+    private int errors;
+    private long bytes;
+    private long elapsed;
+
+    EndpointStats(String name) {
+        this.name = name;
+        this.latencies = new long[1024];
+    }
+
+    void record(long latencyNanos, long responseBytes) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        bytes += responseBytes;
+    }
+
+    void error() {
+        errors++;
+    }
+
+    void merge(EndpointStats other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.latencies[i], 0);
+        }
+        bytes += other.bytes;
+        errors += other.errors;
+    }
+
+    /**
+     * @param elapsedNanos the wall time taken by all the threads
+     */
+    void finish(long elapsedNanos) {
+        this.elapsed = elapsedNanos;
+        Arrays.sort(latencies, 0, count);
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getErrors() {
+        return errors;
+    }
+
+    double getThroughput() {
+        return (elapsed > 0) ? count * 1e9 / elapsed : 0;
+    }
+
+    /**
+     * @return the latency in milliseconds below which the given percentage
+     *         of the requests finished, once sorted by {@link #finish(long)}
+     */
+    double getPercentile(double percentage) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentage / 100 * count) - 1;
+        return latencies[Math.max(0, Math.min(index, count - 1))] / 1e6;
+    }
+
+    long getBytesPerRequest() {
+        return (count > 0) ? bytes / count : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-14s %9d %7d %10.1f %8.2f %8.2f %8.2f %8.2f %10d", name, count, errors,
+                getThroughput(), getPercentile(50), getPercentile(90), getPercentile(99), getPercentile(100),
+                getBytesPerRequest());
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives an endpoint with a fixed number of threads, each sending requests
+ * one after the other over a kept-alive connection until the time is up.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class LoadClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadClient.class);
+
+    private final String baseUrl;
+    private final int concurrency;
+
+    /**
+     * @param baseUrl e.g. <code>http://localhost:8080</code>
+     */
+    LoadClient(String baseUrl, int concurrency) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+    }
+
+    EndpointStats run(final Endpoint endpoint, long millis) throws InterruptedException {
+        final URL url;
+        try {
+            url = new URL(baseUrl + endpoint.getPath());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid path of " + endpoint, e);
+        }
+        final long deadline = System.nanoTime() + millis * 1000000L;
+        List<Thread> threads = new ArrayList<Thread>(concurrency);
+        final List<EndpointStats> results = new ArrayList<EndpointStats>(concurrency);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            final EndpointStats stats = new EndpointStats(endpoint.getName());
+            results.add(stats);
+            Thread thread = new Thread("load-client-" + i) {
+                @Override
+                public void run() {
+                    while (System.nanoTime() < deadline) {
+                        send(url, endpoint, stats);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        EndpointStats total = new EndpointStats(endpoint.getName());
+        for (EndpointStats stats : results) {
+            total.merge(stats);
+        }
+        total.finish(System.nanoTime() - start);
+        return total;
+    }
+
+    private void send(URL url, Endpoint endpoint, EndpointStats stats) {
+        long start = System.nanoTime();
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(endpoint.getMethod());
+            connection.setRequestProperty("Accept", "application/json");
+            byte[] body = endpoint.getBody();
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(body.length);
+                OutputStream output = connection.getOutputStream();
+                output.write(body);
+                output.close();
+            }
+
+            int status = connection.getResponseCode();
+            InputStream input = (status < 400) ? connection.getInputStream() : connection.getErrorStream();
+            long bytes = drain(input);
+            if (status >= 400) {
+                logger.debug(endpoint + " answered " + status);
+                stats.error();
+            } else {
+                stats.record(System.nanoTime() - start, bytes);
+            }
+        } catch (IOException e) {
+            logger.debug("Request to " + endpoint + " failed", e);
+            stats.error();
+            if (connection != null) {
+                drainQuietly(connection.getErrorStream());
+            }
+        }
+    }
+
+    /*
+     * Reading the body to the end and closing it lets the connection be
+     * reused by the next request
+     */
+    private static long drain(InputStream input) throws IOException {
+        if (input == null) {
+            return 0;
+        }
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        try {
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                total += read;
+            }
+        } finally {
+            input.close();
+        }
+        return total;
+    }
+
+    private static void drainQuietly(InputStream input) {
+        try {
+            drain(input);
+        } catch (IOException e) {
+            // the connection is discarded
+        }
+    }
+
+}
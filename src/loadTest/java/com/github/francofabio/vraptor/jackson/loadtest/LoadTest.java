@@ -0,0 +1,105 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * End-to-end throughput harness: boots the sample application on localhost
+ * and drives each endpoint in turn, so a request pays for routing, reading
+ * the body with <code>JacksonDeserialization</code> and writing the response
+ * with <code>JacksonSerialization</code>. Prints the throughput, latency
+ * percentiles and bytes per request of each endpoint.
+ * <p>
+ * Configured with system properties, e.g.
+ * <code>gradle loadTest -Dloadtest.concurrency=16 -Dloadtest.duration=30</code>:
+ * <ul>
+ * <li><code>loadtest.concurrency</code>: client threads, 8 by default</li>
+ * <li><code>loadtest.duration</code>: seconds measured per endpoint, 10 by
+ * default</li>
+ * <li><code>loadtest.warmup</code>: seconds sent before measuring, 3 by
+ * default</li>
+ * <li><code>loadtest.size</code>: elements of the lists and products of each
+ * order, 20 by default</li>
+ * <li><code>loadtest.endpoints</code>: comma separated names of the endpoints
+ * to drive, all by default</li>
+ * <li><code>loadtest.port</code>: port of the server, any free port by
+ * default</li>
+ * </ul>
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+        int duration = Integer.getInteger("loadtest.duration", 10);
+        int warmup = Integer.getInteger("loadtest.warmup", 3);
+        int size = Integer.getInteger("loadtest.size", 20);
+        int port = Integer.getInteger("loadtest.port", 0);
+        String names = System.getProperty("loadtest.endpoints");
+
+        /*
+         * Keeps one connection per client thread alive between requests
+         */
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(concurrency));
+
+        List<Endpoint> endpoints = select(endpoints(size), names);
+        LoadTestServer server = new LoadTestServer(port);
+        server.start();
+        try {
+            LoadClient client = new LoadClient(server.getBaseUrl(), concurrency);
+            logger.info("Driving " + endpoints.size() + " endpoints at " + server.getBaseUrl() + " with "
+                    + concurrency + " threads for " + duration + "s each");
+
+            List<EndpointStats> report = new ArrayList<EndpointStats>();
+            for (Endpoint endpoint : endpoints) {
+                logger.info("Running " + endpoint);
+                client.run(endpoint, warmup * 1000L);
+                report.add(client.run(endpoint, duration * 1000L));
+            }
+
+            System.out.println();
+            System.out.println("concurrency=" + concurrency + " duration=" + duration + "s size=" + size);
+            System.out.println(EndpointStats.HEADER);
+            for (EndpointStats stats : report) {
+                System.out.println(stats);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    static List<Endpoint> endpoints(int size) {
+        return Arrays.asList(Endpoint.get("customer", "/customers/1"),
+                Endpoint.get("order", "/orders/1?products=" + size),
+                Endpoint.get("orders", "/orders?size=" + size + "&products=" + size),
+                Endpoint.get("products", "/products?size=" + size),
+                Endpoint.post("create-order", "/orders", Samples.orderBody(1L, size)));
+    }
+
+    private static List<Endpoint> select(List<Endpoint> endpoints, String names) {
+        if (names == null || names.trim().length() == 0) {
+            return endpoints;
+        }
+        List<String> selected = Arrays.asList(names.trim().split("\\s*,\\s*"));
+        List<Endpoint> result = new ArrayList<Endpoint>();
+        for (Endpoint endpoint : endpoints) {
+            if (selected.contains(endpoint.getName())) {
+                result.add(endpoint);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("No endpoint named " + names);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.EnumSet;
+
+import org.eclipse.jetty.server.DispatcherType;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+
+import br.com.caelum.vraptor.VRaptor;
+import br.com.caelum.vraptor.config.BasicConfiguration;
+
+/**
+ * Minimal VRaptor application on an embedded Jetty bound to localhost, with
+ * the plugin's serialization and deserialization and the sample controllers
+ * of this package as its only components.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class LoadTestServer {
+
+    /*
+     * Listed instead of the root package, so the resources declared by the
+     * unit tests are left out
+     */
+    private static final String PACKAGES = "com.github.francofabio.vraptor.jackson.serialization,"
+            + "com.github.francofabio.vraptor.jackson.deserialization,"
+            + "com.github.francofabio.vraptor.jackson.loadtest";
+
+    private final Server server;
+    private final File webapp;
+
+    /**
+     * @param port the port to listen on, or 0 for any free port
+     */
+    LoadTestServer(int port) throws IOException {
+        this.webapp = createWebapp();
+        this.server = new Server(new InetSocketAddress("localhost", port));
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        context.setResourceBase(webapp.getAbsolutePath());
+        context.setInitParameter(BasicConfiguration.BASE_PACKAGES_PARAMETER_NAME, PACKAGES);
+        context.setInitParameter(BasicConfiguration.ENCODING, "UTF-8");
+        context.addFilter(new FilterHolder(new VRaptor()), "/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addServlet(DefaultServlet.class, "/");
+        server.setHandler(context);
+    }
+
+    /*
+     * VRaptor scans WEB-INF/classes of the context, which here is empty; the
+     * components come from the packages listed above
+     */
+    private static File createWebapp() throws IOException {
+        File webapp = File.createTempFile("vraptor-jackson-loadtest", "");
+        webapp.delete();
+        if (!new File(webapp, "WEB-INF/classes").mkdirs()) {
+            throw new IOException("Unable to create " + webapp);
+        }
+        return webapp;
+    }
+
+    void start() throws Exception {
+        server.start();
+    }
+
+    String getBaseUrl() {
+        return "http://localhost:" + server.getConnectors()[0].getLocalPort();
+    }
+
+    void stop() throws Exception {
+        try {
+            server.stop();
+        } finally {
+            new File(webapp, "WEB-INF/classes").delete();
+            new File(webapp, "WEB-INF").delete();
+            webapp.delete();
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import static br.com.caelum.vraptor.view.Results.json;
+
+import br.com.caelum.vraptor.Consumes;
+import br.com.caelum.vraptor.Get;
+import br.com.caelum.vraptor.Post;
+import br.com.caelum.vraptor.Resource;
+import br.com.caelum.vraptor.Result;
+
+import com.github.francofabio.vraptor.jackson.model.Order;
+
+/**
+ * Sample resource of the load test: orders are read with their customer,
+ * delivery address and products, and created from a JSON body that is
+ * written back.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Resource
+public class OrdersController {
+
+    private final Result result;
+
+    public OrdersController(Result result) {
+        this.result = result;
+    }
+
+    @Get("/orders/{id}")
+    public void show(Long id, int products) {
+        result.use(json()).from(Samples.order(id, products))
+                .include("customer", "customer.address", "delivery", "products", "products.group").serialize();
+    }
+
+    @Get("/orders")
+    public void list(int size, int products) {
+        result.use(json()).withoutRoot().from(Samples.orders(size, products)).include("customer", "products")
+                .serialize();
+    }
+
+    @Post("/orders")
+    @Consumes("application/json")
+    public void create(Order order) {
+        result.use(json()).from(order).include("delivery", "products").serialize();
+    }
+
+}
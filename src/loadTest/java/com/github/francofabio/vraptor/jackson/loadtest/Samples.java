@@ -0,0 +1,87 @@
+package com.github.francofabio.vraptor.jackson.loadtest;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import com.github.francofabio.vraptor.jackson.model.Address;
+import com.github.francofabio.vraptor.jackson.model.Customer;
+import com.github.francofabio.vraptor.jackson.model.Group;
+import com.github.francofabio.vraptor.jackson.model.Order;
+import com.github.francofabio.vraptor.jackson.model.Product;
+
+/**
+ * Builds the object graphs served by the sample controllers and the bodies
+ * posted to them, always the same for the same arguments.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+final class Samples {
+
+    private static final Date CREATION_DATE = creationDate();
+    private static final int GROUPS = 10;
+
+    private Samples() {
+    }
+
+    private static Date creationDate() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2012, Calendar.JANUARY, 1);
+        return calendar.getTime();
+    }
+
+    static Customer customer(Long id) {
+        return new Customer(id, "Customer " + id, new Address("Street " + id, "City " + (id % GROUPS), "00000-000"));
+    }
+
+    static Product product(Long id) {
+        long group = id % GROUPS;
+        return new Product(id, "Product " + id, CREATION_DATE, new Group(group, "Group " + group));
+    }
+
+    static List<Product> products(int size) {
+        List<Product> products = new ArrayList<Product>(size);
+        for (long id = 1; id <= size; id++) {
+            products.add(product(id));
+        }
+        return products;
+    }
+
+    static Order order(Long id, int products) {
+        Customer customer = customer(id);
+        Order order = new Order(id, customer, customer.getAddress());
+        for (long product = 1; product <= products; product++) {
+            order.addProduct(product(product));
+        }
+        return order;
+    }
+
+    static List<Order> orders(int size, int products) {
+        List<Order> orders = new ArrayList<Order>(size);
+        for (long id = 1; id <= size; id++) {
+            orders.add(order(id, products));
+        }
+        return orders;
+    }
+
+    /**
+     * The body of a new order with its products, as posted by a client.
+     */
+    static String orderBody(Long id, int products) {
+        StringBuilder body = new StringBuilder("{\"order\":{\"id\":").append(id)
+                .append(",\"delivery\":{\"street\":\"Street ").append(id)
+                .append("\",\"city\":\"City\",\"zipCode\":\"00000-000\"},\"products\":[");
+        for (int product = 1; product <= products; product++) {
+            if (product > 1) {
+                body.append(',');
+            }
+            body.append("{\"id\":").append(product).append(",\"name\":\"Product ").append(product)
+                    .append("\",\"creationDate\":\"2012-01-01\"}");
+        }
+        return body.append("]}}").toString();
+    }
+
+}
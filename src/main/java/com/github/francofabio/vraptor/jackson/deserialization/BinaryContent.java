@@ -0,0 +1,65 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Binary content bound from a base64 JSON string. Small contents are kept in
+ * memory; larger ones are decoded to a temporary file, deleted when the request
+ * ends, so the content must be consumed or copied by the controller. Outside
+ * of a request the file should be released with {@link #delete()}.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class BinaryContent {
+
+    private final byte[] data;
+    private final File file;
+    private final long length;
+
+    public BinaryContent(byte[] data) {
+        this.data = data;
+        this.file = null;
+        this.length = data.length;
+    }
+
+    public BinaryContent(File file, long length) {
+        this.data = null;
+        this.file = file;
+        this.length = length;
+    }
+
+    public InputStream getInputStream() throws IOException {
+        if (file != null) {
+            return new FileInputStream(file);
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * @return the temporary file holding the content, or <code>null</code> when
+     *         it is kept in memory
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public void delete() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+}
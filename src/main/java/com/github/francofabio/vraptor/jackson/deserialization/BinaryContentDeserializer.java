@@ -0,0 +1,174 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.codehaus.jackson.Base64Variant;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationContext;
+import org.codehaus.jackson.map.JsonDeserializer;
+
+/**
+ * Decodes base64 strings into {@link BinaryContent} incrementally, straight
+ * from the characters the parser holds, so the decoded content is never
+ * copied whole on the heap. Decoded bytes are kept in memory up to the
+ * threshold and then spilled to a temporary file, deleted at the end of the
+ * request by the {@link TemporaryFilesInterceptor}.
+ * <p>
+ * Jackson 1.9 has no incremental read of string values, which only arrived
+ * with <code>readBinaryValue</code> in 2.1, so the encoded token itself is
+ * still buffered by the parser.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class BinaryContentDeserializer extends JsonDeserializer<BinaryContent> {
+
+    public static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+    private final int threshold;
+
+    public BinaryContentDeserializer() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public BinaryContentDeserializer(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public BinaryContent deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            Object value = jp.getEmbeddedObject();
+            if (value instanceof byte[]) {
+                return new BinaryContent((byte[]) value);
+            }
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw ctxt.mappingException(BinaryContent.class, token);
+        }
+
+        Sink sink = new Sink(threshold);
+        try {
+            Decoder decoder = new Decoder(ctxt.getBase64Variant(), sink, ctxt);
+            char[] text = jp.getTextCharacters();
+            int end = jp.getTextOffset() + jp.getTextLength();
+            for (int i = jp.getTextOffset(); i < end; i++) {
+                decoder.accept(text[i]);
+            }
+            decoder.finish();
+            return sink.toContent();
+        } catch (IOException e) {
+            sink.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes base64 characters, ignoring whitespace and anything after the
+     * padding.
+     */
+    private static class Decoder {
+
+        private final Base64Variant variant;
+        private final Sink sink;
+        private final DeserializationContext ctxt;
+        private int bits;
+        private int count;
+        private boolean padded;
+
+        Decoder(Base64Variant variant, Sink sink, DeserializationContext ctxt) {
+            this.variant = variant;
+            this.sink = sink;
+            this.ctxt = ctxt;
+        }
+
+        void accept(char c) throws IOException {
+            if (padded || c <= ' ') {
+                return;
+            }
+            int value = variant.decodeBase64Char(c);
+            if (value == Base64Variant.BASE64_VALUE_PADDING) {
+                padded = true;
+                return;
+            }
+            if (value < 0) {
+                throw ctxt.weirdStringException(BinaryContent.class, "Illegal base64 character '" + c + "'");
+            }
+            bits = (bits << 6) | value;
+            if (++count == 4) {
+                sink.write(bits >> 16);
+                sink.write(bits >> 8);
+                sink.write(bits);
+                bits = 0;
+                count = 0;
+            }
+        }
+
+        void finish() throws IOException {
+            if (count == 2) {
+                sink.write(bits >> 4);
+            } else if (count == 3) {
+                sink.write(bits >> 10);
+                sink.write(bits >> 2);
+            } else if (count == 1) {
+                throw ctxt.weirdStringException(BinaryContent.class, "Truncated base64 content");
+            }
+        }
+
+    }
+
+    /**
+     * Receives the decoded bytes, switching from memory to a temporary file when
+     * the threshold is reached.
+     */
+    private static class Sink {
+
+        private final int threshold;
+        private final ByteArrayOutputStream memory;
+        private OutputStream output;
+        private File file;
+        private long length;
+
+        Sink(int threshold) {
+            this.threshold = threshold;
+            this.memory = new ByteArrayOutputStream();
+            this.output = memory;
+        }
+
+        void write(int b) throws IOException {
+            if (file == null && length == threshold) {
+                file = File.createTempFile("vraptor-jackson", ".bin");
+                TemporaryFiles.track(file);
+                output = new BufferedOutputStream(new FileOutputStream(file));
+                memory.writeTo(output);
+                memory.reset();
+            }
+            output.write(b);
+            length++;
+        }
+
+        BinaryContent toContent() throws IOException {
+            if (file == null) {
+                return new BinaryContent(memory.toByteArray());
+            }
+            output.close();
+            return new BinaryContent(file, length);
+        }
+
+        void discard() throws IOException {
+            if (file != null) {
+                output.close();
+                file.delete();
+            }
+        }
+
+    }
+
+}
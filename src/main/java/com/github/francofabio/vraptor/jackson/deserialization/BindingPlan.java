@@ -0,0 +1,93 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.map.type.TypeFactory;
+import org.codehaus.jackson.type.JavaType;
+
+import com.github.francofabio.vraptor.jackson.metadata.MethodMetadata;
+
+/**
+ * Everything needed to bind the body of a resource method, resolved once: the
+ * parameter names, their full and element types and whether they are bound
+ * onto existing instances.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class BindingPlan {
+
+    private final MethodMetadata metadata;
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+    private final JavaType[] types;
+    private final JavaType[] elementTypes;
+    private final boolean[] updating;
+
+    public BindingPlan(MethodMetadata metadata, String[] names, TypeFactory typeFactory) {
+        int count = metadata.getParameterCount();
+        this.metadata = metadata;
+        this.names = names;
+        this.indexes = new HashMap<String, Integer>();
+        this.types = new JavaType[count];
+        this.elementTypes = new JavaType[count];
+        this.updating = new boolean[count];
+        Annotation[][] annotations = metadata.getMethod().getParameterAnnotations();
+        for (int i = 0; i < count; i++) {
+            if (names != null) {
+                indexes.put(names[i], i);
+            }
+            types[i] = typeFactory.constructType(metadata.getGenericParameterType(i));
+            elementTypes[i] = typeFactory.constructType(metadata.getElementType(i));
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof Updating) {
+                    updating[i] = true;
+                }
+            }
+        }
+    }
+
+    public Method getMethod() {
+        return metadata.getMethod();
+    }
+
+    public int getParameterCount() {
+        return types.length;
+    }
+
+    public String getParameterName(int index) {
+        return (names == null) ? null : names[index];
+    }
+
+    /**
+     * @return the index of the parameter, or -1 when the method has no parameter
+     *         with the given name
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return (index == null) ? -1 : index;
+    }
+
+    public Class<?> getParameterType(int index) {
+        return metadata.getParameterType(index);
+    }
+
+    public JavaType getType(int index) {
+        return types[index];
+    }
+
+    public JavaType getElementType(int index) {
+        return elementTypes[index];
+    }
+
+    /**
+     * @return whether the parameter is annotated with {@link Updating}
+     */
+    public boolean isUpdating(int index) {
+        return updating[index];
+    }
+
+}
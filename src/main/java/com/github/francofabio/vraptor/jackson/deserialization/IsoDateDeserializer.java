@@ -0,0 +1,103 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationContext;
+import org.codehaus.jackson.map.deser.std.StdScalarDeserializer;
+
+/**
+ * Reads <code>yyyy-MM-dd</code> dates straight from the characters held by
+ * the parser, without a <code>DateFormat</code>. The first instant of recently
+ * read days is kept, so a day already seen costs only the new
+ * <code>Date</code>. Any other text or a timestamp goes through the configured
+ * format, as before.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class IsoDateDeserializer extends StdScalarDeserializer<Date> {
+
+    private static final int CACHE_SIZE = 16;
+
+    private final TimeZone timeZone;
+    /*
+     * Days are immutable, so racing threads at most compute one again
+     */
+    private final Day[] days = new Day[CACHE_SIZE];
+
+    public IsoDateDeserializer() {
+        this(TimeZone.getDefault());
+    }
+
+    public IsoDateDeserializer(TimeZone timeZone) {
+        super(Date.class);
+        this.timeZone = timeZone;
+    }
+
+    @Override
+    public Date deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        if (jp.getCurrentToken() == JsonToken.VALUE_STRING && jp.getTextLength() == 10) {
+            int key = keyOf(jp.getTextCharacters(), jp.getTextOffset());
+            if (key >= 0) {
+                int slot = key & (CACHE_SIZE - 1);
+                Day day = days[slot];
+                if (day == null || day.key != key) {
+                    day = dayOf(key);
+                    days[slot] = day;
+                }
+                return new Date(day.start);
+            }
+        }
+        return _parseDate(jp, ctxt);
+    }
+
+    /**
+     * @return the date as <code>yyyyMMdd</code> or <code>-1</code> when the
+     *         text is not in the <code>yyyy-MM-dd</code> form
+     */
+    private static int keyOf(char[] text, int offset) {
+        if (text[offset + 4] != '-' || text[offset + 7] != '-') {
+            return -1;
+        }
+        int key = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 4 || i == 7) {
+                continue;
+            }
+            char c = text[offset + i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    /**
+     * Out of range months and days roll over, as with the lenient format.
+     */
+    private Day dayOf(int key) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(key / 10000, (key / 100) % 100 - 1, key % 100);
+        return new Day(key, calendar.getTimeInMillis());
+    }
+
+    private static class Day {
+
+        private final int key;
+        private final long start;
+
+        Day(int key, long start) {
+            this.key = key;
+            this.start = start;
+        }
+
+    }
+
+}
@@ -4,10 +4,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.Version;
 import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.module.SimpleModule;
+import org.codehaus.jackson.type.JavaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,39 +26,85 @@ import br.com.caelum.vraptor.http.ParameterNameProvider;
 import br.com.caelum.vraptor.resource.ResourceMethod;
 import br.com.caelum.vraptor.view.ResultException;
 
+import com.github.francofabio.vraptor.jackson.metadata.MetadataRegistry;
+import com.github.francofabio.vraptor.jackson.metadata.MethodMetadata;
+
 @Deserializes({ "application/json", "json" })
 public class JacksonDeserialization implements Deserializer {
 
 	private static final Logger logger = LoggerFactory.getLogger(JacksonDeserialization.class);
 	
+    private static final ObjectMapper MAPPER = createObjectMapper();
+    private static final ConcurrentMap<Method, BindingPlan> plans = new ConcurrentHashMap<Method, BindingPlan>();
+	
     private final ParameterNameProvider paramNameProvider;
+    private final UpdateTargetResolver targetResolver;
+    private final ObjectMapper mapper;
     
     public JacksonDeserialization(ParameterNameProvider paramNameProvider) {
+        this(paramNameProvider, null);
+    }
+    
+    /**
+     * @param targetResolver supplies the instances of the parameters annotated
+     *            with {@link Updating}
+     */
+    public JacksonDeserialization(ParameterNameProvider paramNameProvider, UpdateTargetResolver targetResolver) {
         this.paramNameProvider = paramNameProvider;
+        this.targetResolver = targetResolver;
+        this.mapper = sharesMapper(getClass()) ? MAPPER : createObjectMapper();
+    }
+    
+    /*
+     * Subclasses may reconfigure the mapper they get, as they did before it
+     * was shared, so only the classes of this plugin use the shared one
+     */
+    private static boolean sharesMapper(Class<?> type) {
+        return type == JacksonDeserialization.class || type == JacksonNDJSONDeserialization.class;
     }
     
     @Override
     public Object[] deserialize(InputStream inputStream, ResourceMethod method) {
-        Method jMethod = method.getMethod();
-        Class<?>[] types = jMethod.getParameterTypes();
-        if (types.length == 0) {
+        if (method.getMethod().getParameterTypes().length == 0) {
             throw new IllegalArgumentException("Methods that consumes representations must receive just one argument");
         }
         
         ObjectMapper mapper = getObjectMapper(); 
-        Object[] params = new Object[types.length];
-        String[] parameterNames = paramNameProvider.parameterNamesFor(jMethod);
+        BindingPlan plan = getBindingPlan(method);
+        if (isWithoutRoot(method)) {
+            if (plan.getParameterCount() > 1) {
+                throw new IllegalArgumentException("Methods that consumes representations without root must receive just one argument");
+            }
+            return new Object[] { deserializeWithoutRoot(inputStream, mapper, plan, method) };
+        }
+        
+        Object[] params = new Object[plan.getParameterCount()];
         
         try {
-        	String content = getContentOfStream(inputStream);
-        	logger.debug("json retrieved: " + content);
-            JsonNode root = mapper.readTree(content);
+            JsonParser parser = mapper.getJsonFactory().createJsonParser(inputStream);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return params;
+            }
             
-            for (int i=0; i < types.length; i++) {
-                String name = parameterNames[i];
-                JsonNode node = root.get(name);
-                if (node != null) {
-                    params[i] = mapper.readValue(node, types[i]);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                
+                int i = plan.indexOf(name);
+                if (i == -1) {
+                    parser.skipChildren();
+                } else if (isStreamed(plan.getParameterType(i))) {
+                    logger.debug("streaming parameter: " + name);
+                    params[i] = streamOf(parser, mapper, plan.getElementType(i));
+                    /*
+                     * The remaining of the body belongs to the controller, so the
+                     * streamed parameter must be the last one in the document
+                     */
+                    break;
+                } else {
+                    logger.debug("binding parameter: " + name);
+                    params[i] = plan.isUpdating(i) ? update(parser, mapper, plan, i, method) : mapper.readValue(
+                            parser, plan.getParameterType(i));
                 }
             }
         } catch (Exception e) {
@@ -59,9 +114,121 @@ public class JacksonDeserialization implements Deserializer {
         return params;
     }
 
+    /**
+     * Binds the whole body in a single streaming pass to the given type, with no
+     * intermediate tree.
+     */
+    protected Object deserializeWithoutRoot(InputStream inputStream, ObjectMapper mapper, BindingPlan plan,
+            ResourceMethod method) {
+        try {
+            JsonParser parser = mapper.getJsonFactory().createJsonParser(inputStream);
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            if (isStreamed(plan.getParameterType(0))) {
+                return streamOf(parser, mapper, plan.getElementType(0));
+            }
+            if (plan.isUpdating(0)) {
+                return update(parser, mapper, plan, 0, method);
+            }
+            return mapper.readValue(parser, plan.getType(0));
+        } catch (Exception e) {
+            throw new ResultException("Unable to deserialize data", e);
+        }
+    }
+
+    /**
+     * Binds the current value of the parser onto the instance supplied by the
+     * {@link UpdateTargetResolver} for a parameter annotated with
+     * {@link Updating}, setting only the properties present in the request.
+     * A new instance is bound when the resolver supplies none.
+     */
+    protected Object update(JsonParser parser, ObjectMapper mapper, BindingPlan plan, int index, ResourceMethod method)
+            throws IOException {
+        if (targetResolver == null) {
+            throw new IllegalStateException("No UpdateTargetResolver found to bind " + plan.getParameterName(index)
+                    + " of " + plan.getMethod());
+        }
+        Object target = targetResolver.resolve(method, plan.getParameterName(index), plan.getParameterType(index));
+        if (target == null) {
+            return mapper.readValue(parser, plan.getType(index));
+        }
+        logger.debug("updating parameter: " + plan.getParameterName(index));
+        return mapper.reader(plan.getType(index)).withValueToUpdate(target).readValue(parser);
+    }
+
+    /**
+     * Returns the binding plan of the method, resolving it on the first call.
+     */
+    public BindingPlan getBindingPlan(ResourceMethod method) {
+        Method jMethod = method.getMethod();
+        BindingPlan plan = plans.get(jMethod);
+        if (plan == null) {
+            MethodMetadata metadata = MetadataRegistry.getInstance().getMethodMetadata(jMethod);
+            String[] names = paramNameProvider.parameterNamesFor(jMethod);
+            plan = new BindingPlan(metadata, names, getObjectMapper().getTypeFactory());
+            BindingPlan previous = plans.putIfAbsent(jMethod, plan);
+            if (previous != null) {
+                plan = previous;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Resolves the binding plan of the method and builds the Jackson
+     * deserializers of its parameters ahead of the first request.
+     */
+    public BindingPlan precompile(ResourceMethod method) {
+        BindingPlan plan = getBindingPlan(method);
+        ObjectMapper mapper = getObjectMapper();
+        for (int i = 0; i < plan.getParameterCount(); i++) {
+            mapper.canDeserialize(isStreamed(plan.getParameterType(i)) ? plan.getElementType(i) : plan.getType(i));
+        }
+        return plan;
+    }
+
+    /**
+     * {@link WithoutRoot} on the resource class only applies to the methods
+     * that receive a single argument; the others keep their roots.
+     */
+    protected boolean isWithoutRoot(ResourceMethod method) {
+        Method jMethod = method.getMethod();
+        return jMethod.isAnnotationPresent(WithoutRoot.class)
+                || (jMethod.getDeclaringClass().isAnnotationPresent(WithoutRoot.class)
+                        && jMethod.getParameterTypes().length == 1);
+    }
+
+    /**
+     * Parameters typed as {@link Iterator} or {@link Iterable} are bound lazily,
+     * reading each element from the request only when the controller asks for it.
+     */
+    protected boolean isStreamed(Class<?> type) {
+        return Iterator.class.equals(type) || Iterable.class.equals(type);
+    }
+
+    protected JsonStreamIterator<Object> streamOf(JsonParser parser, ObjectMapper mapper, JavaType elementType)
+            throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new JsonMappingException("Streamed parameters must be represented as JSON arrays",
+                    parser.getCurrentLocation());
+        }
+        return new JsonStreamIterator<Object>(parser, mapper, elementType);
+    }
+
+    /**
+     * @return the mapper of this instance; subclasses get their own, which
+     *         they may reconfigure without affecting other requests
+     */
     protected ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    protected static ObjectMapper createObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
-        mapper = new ObjectMapper();
         mapper.configure(DeserializationConfig.Feature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
         mapper.configure(DeserializationConfig.Feature.FAIL_ON_NULL_FOR_PRIMITIVES, false);
         mapper.configure(DeserializationConfig.Feature.READ_ENUMS_USING_TO_STRING, true);
@@ -69,19 +236,12 @@ public class JacksonDeserialization implements Deserializer {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         mapper.setDateFormat(sdf);
         
+        SimpleModule module = new SimpleModule("vraptor-jackson", new Version(1, 0, 0, null));
+        module.addDeserializer(BinaryContent.class, new BinaryContentDeserializer());
+        module.addDeserializer(Date.class, new IsoDateDeserializer());
+        mapper.registerModule(module);
+        
         return mapper;
     }
-    
-    private String getContentOfStream(InputStream input) throws IOException {
-    	StringBuilder content = new StringBuilder();
-    	
-    	byte[] buffer = new byte[1024];
-    	int readed = 0;
-    	while ((readed=input.read(buffer)) != -1) {
-    		content.append(new String(buffer, 0, readed));
-    	}
-    	
-    	return content.toString();
-    }
 
 }
@@ -0,0 +1,55 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.io.InputStream;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import br.com.caelum.vraptor.deserialization.Deserializes;
+import br.com.caelum.vraptor.http.ParameterNameProvider;
+import br.com.caelum.vraptor.resource.ResourceMethod;
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Deserializes newline-delimited JSON (one document per line). The documents
+ * are bound lazily to the {@link java.util.Iterator} or {@link Iterable}
+ * argument of the method, line by line as the controller consumes them.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Deserializes({ "application/x-ndjson", "ndjson" })
+public class JacksonNDJSONDeserialization extends JacksonDeserialization {
+
+    public JacksonNDJSONDeserialization(ParameterNameProvider paramNameProvider) {
+        super(paramNameProvider);
+    }
+
+    @Override
+    public Object[] deserialize(InputStream inputStream, ResourceMethod method) {
+        BindingPlan plan = getBindingPlan(method);
+        Object[] params = new Object[plan.getParameterCount()];
+
+        int index = -1;
+        for (int i = 0; i < params.length; i++) {
+            if (isStreamed(plan.getParameterType(i))) {
+                index = i;
+                break;
+            }
+        }
+        if (index == -1) {
+            throw new IllegalArgumentException("Methods that consumes NDJSON must receive an Iterator or Iterable argument");
+        }
+
+        ObjectMapper mapper = getObjectMapper();
+        try {
+            JsonParser parser = mapper.getJsonFactory().createJsonParser(inputStream);
+            params[index] = new JsonStreamIterator<Object>(parser, mapper, plan.getElementType(index));
+        } catch (Exception e) {
+            throw new ResultException("Unable to deserialize data", e);
+        }
+
+        return params;
+    }
+
+}
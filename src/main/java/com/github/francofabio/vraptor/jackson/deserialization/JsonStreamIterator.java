@@ -0,0 +1,92 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.JavaType;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Lazy iterator over a sequence of JSON values. Each element is bound only when
+ * it is requested, so the sequence is never materialized in memory.
+ * <p>
+ * The parser must be positioned either on the <code>START_ARRAY</code> token of
+ * an array or before a sequence of root-level values. The iteration ends on the
+ * matching <code>END_ARRAY</code> or at the end of the input, respectively.
+ * <p>
+ * It is also an {@link Iterable}, but can be traversed just once.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class JsonStreamIterator<T> implements Iterator<T>, Iterable<T> {
+
+    private final JsonParser parser;
+    private final ObjectMapper mapper;
+    private final JavaType elementType;
+    private JsonToken current;
+    private boolean finished;
+
+    public JsonStreamIterator(JsonParser parser, ObjectMapper mapper, JavaType elementType) {
+        this.parser = parser;
+        this.mapper = mapper;
+        this.elementType = elementType;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (finished) {
+            return false;
+        }
+        if (current == null) {
+            try {
+                current = parser.nextToken();
+            } catch (IOException e) {
+                throw new ResultException("Unable to deserialize data", e);
+            }
+            if (current == null || current == JsonToken.END_ARRAY) {
+                finish();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        current = null;
+        try {
+            return mapper.<T> readValue(parser, elementType);
+        } catch (IOException e) {
+            throw new ResultException("Unable to deserialize data", e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    private void finish() {
+        finished = true;
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new ResultException("Unable to deserialize data", e);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Temporary files created while handling the current request. Files are only
+ * tracked between {@link #open()} and {@link #close()}; outside of a request
+ * they are left to {@link BinaryContent#delete()}.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class TemporaryFiles {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemporaryFiles.class);
+
+    private static final ThreadLocal<List<File>> files = new ThreadLocal<List<File>>();
+
+    private TemporaryFiles() {
+    }
+
+    static void open() {
+        files.set(new ArrayList<File>());
+    }
+
+    static void track(File file) {
+        List<File> tracked = files.get();
+        if (tracked != null) {
+            tracked.add(file);
+        }
+    }
+
+    /**
+     * Deletes the files tracked since {@link #open()}.
+     */
+    static void close() {
+        List<File> tracked = files.get();
+        files.remove();
+        if (tracked == null) {
+            return;
+        }
+        for (File file : tracked) {
+            if (file.exists() && !file.delete()) {
+                logger.warn("Unable to delete temporary file " + file);
+            }
+        }
+    }
+
+}
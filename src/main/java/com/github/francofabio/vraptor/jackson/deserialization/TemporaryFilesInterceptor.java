@@ -0,0 +1,84 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.caelum.vraptor.InterceptionException;
+import br.com.caelum.vraptor.Intercepts;
+import br.com.caelum.vraptor.core.InterceptorStack;
+import br.com.caelum.vraptor.interceptor.DeserializingInterceptor;
+import br.com.caelum.vraptor.interceptor.Interceptor;
+import br.com.caelum.vraptor.resource.ResourceMethod;
+
+import com.github.francofabio.vraptor.jackson.metadata.MetadataRegistry;
+import com.github.francofabio.vraptor.jackson.metadata.MethodMetadata;
+import com.github.francofabio.vraptor.jackson.metadata.PropertyMetadata;
+
+/**
+ * Deletes the temporary files holding the {@link BinaryContent} of the request
+ * once it is handled, including when a later parameter fails to bind or the
+ * controller throws. Only methods whose parameters may hold a
+ * {@link BinaryContent}, directly or in their properties, are intercepted.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Intercepts(before = DeserializingInterceptor.class)
+public class TemporaryFilesInterceptor implements Interceptor {
+
+    private static final ConcurrentMap<Method, Boolean> accepted = new ConcurrentHashMap<Method, Boolean>();
+
+    public boolean accepts(ResourceMethod method) {
+        Boolean binds = accepted.get(method.getMethod());
+        if (binds == null) {
+            binds = bindsBinaryContent(MetadataRegistry.getInstance().getMethodMetadata(method.getMethod()));
+            accepted.put(method.getMethod(), binds);
+        }
+        return binds;
+    }
+
+    public void intercept(InterceptorStack stack, ResourceMethod method, Object resourceInstance)
+            throws InterceptionException {
+        TemporaryFiles.open();
+        try {
+            stack.next(method, resourceInstance);
+        } finally {
+            TemporaryFiles.close();
+        }
+    }
+
+    private static boolean bindsBinaryContent(MethodMetadata metadata) {
+        Set<Class<?>> walked = new HashSet<Class<?>>();
+        for (int i = 0; i < metadata.getParameterCount(); i++) {
+            Type element = metadata.getElementType(i);
+            if (holdsBinaryContent(metadata.getParameterType(i), walked)
+                    || (element instanceof Class<?> && holdsBinaryContent((Class<?>) element, walked))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean holdsBinaryContent(Class<?> type, Set<Class<?>> walked) {
+        if (BinaryContent.class.isAssignableFrom(type)) {
+            return true;
+        }
+        if (type.isArray()) {
+            return holdsBinaryContent(type.getComponentType(), walked);
+        }
+        if (MetadataRegistry.isLeaf(type) || !walked.add(type)) {
+            return false;
+        }
+        for (PropertyMetadata property : MetadataRegistry.getInstance().getClassMetadata(type).getProperties()) {
+            if (holdsBinaryContent(property.getElementType(), walked)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import br.com.caelum.vraptor.resource.ResourceMethod;
+
+/**
+ * Supplies the instances that parameters annotated with {@link Updating} are
+ * bound onto, e.g. the entity loaded by the id of the request. Registered as
+ * a component, it is injected into {@link JacksonDeserialization}; the path
+ * parameters are already available from the request when it is called.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public interface UpdateTargetResolver {
+
+    /**
+     * @param parameter the name of the parameter being bound
+     * @param type the declared type of the parameter
+     * @return the instance to update, or <code>null</code> to bind a new one
+     */
+    Object resolve(ResourceMethod method, String parameter, Class<?> type);
+
+}
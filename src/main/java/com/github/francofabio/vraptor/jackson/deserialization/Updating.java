@@ -0,0 +1,23 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds the body of the parameter onto the existing instance supplied by the
+ * {@link UpdateTargetResolver}, instead of building a new one. Only the
+ * properties present in the request are set, so partial updates such as
+ * <code>PATCH</code> need no copy of the entity. Nested objects present in
+ * the request are bound as new values.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Updating {
+}
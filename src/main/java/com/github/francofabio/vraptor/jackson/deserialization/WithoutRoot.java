@@ -0,0 +1,22 @@
+package com.github.francofabio.vraptor.jackson.deserialization;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds the whole request body straight into the single argument of the
+ * resource method, instead of expecting a root object keyed by the parameter
+ * name. When placed on the resource class it applies to all its methods that
+ * receive a single argument, while the others keep binding their roots.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface WithoutRoot {
+}
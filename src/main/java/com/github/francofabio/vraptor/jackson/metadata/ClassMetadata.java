@@ -0,0 +1,60 @@
+package com.github.francofabio.vraptor.jackson.metadata;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reflection data of a class: whether it is a leaf value and, for POJOs, its
+ * fields in declaration order (subclass fields first).
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class ClassMetadata {
+
+    private final Class<?> type;
+    private final boolean leaf;
+    private final List<PropertyMetadata> properties;
+    private final Map<String, PropertyMetadata> propertiesByName;
+
+    ClassMetadata(Class<?> type, boolean leaf, List<PropertyMetadata> properties) {
+        this.type = type;
+        this.leaf = leaf;
+        this.properties = Collections.unmodifiableList(properties);
+        this.propertiesByName = new HashMap<String, PropertyMetadata>();
+        for (PropertyMetadata property : properties) {
+            // fields of subclasses hide the ones of their parents
+            if (!propertiesByName.containsKey(property.getName())) {
+                propertiesByName.put(property.getName(), property);
+            }
+        }
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isLeaf() {
+        return leaf;
+    }
+
+    public List<PropertyMetadata> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the property with the given name, or <code>null</code> when the
+     *         class has no such field
+     */
+    public PropertyMetadata getProperty(String name) {
+        return propertiesByName.get(name);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[" + type.getName() + "]";
+    }
+
+}
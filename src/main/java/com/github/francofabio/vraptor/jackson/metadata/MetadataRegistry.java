@@ -0,0 +1,184 @@
+package com.github.francofabio.vraptor.jackson.metadata;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.sql.Blob;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.vidageek.mirror.dsl.Mirror;
+
+import com.github.francofabio.vraptor.jackson.serialization.Base64File;
+
+/**
+ * Application wide cache of class and method metadata. Each class is reflected
+ * once and the result is shared by every serializer and deserializer.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class MetadataRegistry {
+
+    private static final MetadataRegistry INSTANCE = new MetadataRegistry();
+
+    private final ConcurrentMap<Class<?>, ClassMetadata> classes;
+    private final ConcurrentMap<Method, MethodMetadata> methods;
+
+    public MetadataRegistry() {
+        this.classes = new ConcurrentHashMap<Class<?>, ClassMetadata>();
+        this.methods = new ConcurrentHashMap<Method, MethodMetadata>();
+    }
+
+    public static MetadataRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public ClassMetadata getClassMetadata(Class<?> type) {
+        ClassMetadata metadata = classes.get(type);
+        if (metadata == null) {
+            metadata = createClassMetadata(type);
+            ClassMetadata previous = classes.putIfAbsent(type, metadata);
+            if (previous != null) {
+                metadata = previous;
+            }
+        }
+        return metadata;
+    }
+
+    public MethodMetadata getMethodMetadata(Method method) {
+        MethodMetadata metadata = methods.get(method);
+        if (metadata == null) {
+            metadata = new MethodMetadata(method);
+            MethodMetadata previous = methods.putIfAbsent(method, metadata);
+            if (previous != null) {
+                metadata = previous;
+            }
+        }
+        return metadata;
+    }
+
+    private ClassMetadata createClassMetadata(Class<?> type) {
+        boolean leaf = isLeaf(type);
+        List<PropertyMetadata> properties = new ArrayList<PropertyMetadata>();
+        if (!leaf) {
+            for (Field field : new Mirror().on(type).reflectAll().fields()) {
+                properties.add(createPropertyMetadata(type, field));
+            }
+        }
+        return new ClassMetadata(type, leaf, properties);
+    }
+
+    private PropertyMetadata createPropertyMetadata(Class<?> owner, Field field) {
+        Type type = field.getGenericType();
+        boolean collection = isCollection(type);
+        Class<?> elementType = field.getType();
+        if (Map.class.isAssignableFrom(field.getType())) {
+            elementType = mapValueTypeOf(type, field.getType());
+        } else if (collection && type instanceof ParameterizedType) {
+            Type atype = ((ParameterizedType) type).getActualTypeArguments()[0];
+            elementType = (atype instanceof TypeVariable<?>) ? field.getType() : rawTypeOf(atype);
+        }
+        if (field.getType().isArray() && !isLeaf(field.getType())) {
+            collection = true;
+            elementType = field.getType().getComponentType();
+        }
+        return new PropertyMetadata(field, elementType, isLeaf(field.getType()), isDefaultLeaf(field.getType()),
+                collection, findGetter(owner, field));
+    }
+
+    /**
+     * Maps are still leaves, written whole by default, but include paths may
+     * walk into their values when the value type is a plain class.
+     */
+    private static Class<?> mapValueTypeOf(Type type, Class<?> mapType) {
+        if (type instanceof ParameterizedType) {
+            Type vtype = ((ParameterizedType) type).getActualTypeArguments()[1];
+            if (vtype instanceof Class<?> && !Collection.class.isAssignableFrom((Class<?>) vtype)
+                    && !((Class<?>) vtype).isArray()) {
+                return (Class<?>) vtype;
+            }
+        }
+        return mapType;
+    }
+
+    private static Method findGetter(Class<?> owner, Field field) {
+        String name = field.getName();
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (String getter : new String[] { "get" + capitalized, "is" + capitalized }) {
+            Method method = new Mirror().on(owner).reflect().method(getter).withoutArgs();
+            if (method != null) {
+                method.setAccessible(true);
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Values of leaf types are serialized as a whole, instead of being walked
+     * field by field. Arrays of leaf types are leaves too, so primitive arrays
+     * are written by the array serializers of jackson, without boxing.
+     */
+    public static boolean isLeaf(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || Number.class.isAssignableFrom(type) || type.equals(String.class)
+                || Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)
+                || Boolean.class.equals(type) || Character.class.equals(type) || Map.class.isAssignableFrom(type)
+                || Object.class.equals(type) || (type.isArray() && isLeaf(type.getComponentType()))
+                || InputStream.class.isAssignableFrom(type) || File.class.isAssignableFrom(type)
+                || Blob.class.isAssignableFrom(type) || Base64File.class.equals(type);
+    }
+
+    /**
+     * Leaves written when the projection does not name them. Streams, files,
+     * blobs and arrays other than <code>byte[]</code> are only written when an
+     * include path names them, so they never show up in the responses of types
+     * that did not ask for them.
+     */
+    public static boolean isDefaultLeaf(Class<?> type) {
+        return isLeaf(type) && !InputStream.class.isAssignableFrom(type) && !File.class.isAssignableFrom(type)
+                && !Blob.class.isAssignableFrom(type) && !Base64File.class.equals(type)
+                && (!type.isArray() || byte[].class.equals(type));
+    }
+
+    public static boolean isCollection(Type type) {
+        if (type instanceof ParameterizedType) {
+            ParameterizedType ptype = (ParameterizedType) type;
+            return Collection.class.isAssignableFrom((Class<?>) ptype.getRawType())
+                    || Map.class.isAssignableFrom((Class<?>) ptype.getRawType());
+        }
+        return type instanceof Class<?> && Collection.class.isAssignableFrom((Class<?>) type);
+    }
+
+    static Type elementTypeOf(Type type) {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        return Object.class;
+    }
+
+    static Class<?> rawTypeOf(Type type) {
+        if (type instanceof Class<?>) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof WildcardType) {
+            return rawTypeOf(((WildcardType) type).getUpperBounds()[0]);
+        }
+        return Object.class;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.github.francofabio.vraptor.jackson.metadata;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * Resolved parameter types of a resource method, including the element types
+ * of collection, {@link Iterable} and {@link java.util.Iterator} parameters.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class MethodMetadata {
+
+    private final Method method;
+    private final Class<?>[] parameterTypes;
+    private final Type[] genericParameterTypes;
+    private final Type[] elementTypes;
+
+    MethodMetadata(Method method) {
+        this.method = method;
+        this.parameterTypes = method.getParameterTypes();
+        this.genericParameterTypes = method.getGenericParameterTypes();
+        this.elementTypes = new Type[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            elementTypes[i] = MetadataRegistry.elementTypeOf(genericParameterTypes[i]);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public int getParameterCount() {
+        return parameterTypes.length;
+    }
+
+    public Class<?> getParameterType(int index) {
+        return parameterTypes[index];
+    }
+
+    public Type getGenericParameterType(int index) {
+        return genericParameterTypes[index];
+    }
+
+    /**
+     * @return the type argument of a parameterized container parameter, or
+     *         {@link Object} when it is not declared
+     */
+    public Type getElementType(int index) {
+        return elementTypes[index];
+    }
+
+}
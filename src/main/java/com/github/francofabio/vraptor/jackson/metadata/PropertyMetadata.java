@@ -0,0 +1,96 @@
+package com.github.francofabio.vraptor.jackson.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reflection data of a single field: its declared and element types, its
+ * leaf/POJO classification, whether it is in default projections, and the
+ * getter used to read it.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class PropertyMetadata {
+
+    private final Field field;
+    private final Class<?> elementType;
+    private final boolean leaf;
+    private final boolean includedByDefault;
+    private final boolean collection;
+    private final Method getter;
+
+    PropertyMetadata(Field field, Class<?> elementType, boolean leaf, boolean includedByDefault, boolean collection,
+            Method getter) {
+        this.field = field;
+        this.elementType = elementType;
+        this.leaf = leaf;
+        this.includedByDefault = includedByDefault;
+        this.collection = collection;
+        this.getter = getter;
+    }
+
+    public String getName() {
+        return field.getName();
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    /**
+     * @return the element type for collections and arrays, the value type for
+     *         maps, or the field type otherwise
+     */
+    public Class<?> getElementType() {
+        return elementType;
+    }
+
+    /**
+     * @return <code>true</code> when the declared type is serialized as a single
+     *         value instead of being walked field by field
+     */
+    public boolean isLeaf() {
+        return leaf;
+    }
+
+    /**
+     * @return <code>true</code> when the property is written without being
+     *         included, as the fields of the root and of included objects are
+     */
+    public boolean isIncludedByDefault() {
+        return includedByDefault;
+    }
+
+    public boolean isCollection() {
+        return collection;
+    }
+
+    public Method getGetter() {
+        return getter;
+    }
+
+    public Object getValue(Object target) {
+        if (getter == null) {
+            throw new IllegalStateException("Could not find getter for field " + getName());
+        }
+        try {
+            return getter.invoke(target);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to invoke getter of field " + getName(), e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to invoke getter of field " + getName(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[" + field.getDeclaringClass().getName() + "." + getName() + "]";
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.File;
+
+/**
+ * A file whose content is written as a base64 string by the
+ * {@link StreamingBinarySerializer}. Plain {@link File} properties keep being
+ * written as their path, so exposing the content of a file is always explicit.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class Base64File {
+
+    private final File file;
+
+    public Base64File(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+}
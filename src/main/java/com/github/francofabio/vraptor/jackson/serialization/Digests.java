@@ -0,0 +1,47 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Hex encoded digests used as versions and file names.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+final class Digests {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Digests() {
+    }
+
+    static String sha1(String text) {
+        try {
+            return hex(newSha1().digest(text.getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw new ResultException("Unable to compute digest", e);
+        }
+    }
+
+    static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ResultException("Unable to compute digest", e);
+        }
+    }
+
+    static String hex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+}
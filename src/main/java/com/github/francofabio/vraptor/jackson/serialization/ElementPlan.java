@@ -0,0 +1,89 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.jackson.io.SerializedString;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+import com.github.francofabio.vraptor.jackson.metadata.ClassMetadata;
+import com.github.francofabio.vraptor.jackson.metadata.PropertyMetadata;
+
+/**
+ * The fields of a node of the projection resolved for one runtime class, so
+ * the elements of that class are written without resolving paths again.
+ * Fields that the class does not have are left out, which lets collections
+ * mix subclasses of the root type.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+class ElementPlan {
+
+    private final Class<?> type;
+    private final List<Field> fields;
+
+    ElementPlan(NamedTreeNode node, ClassMetadata metadata) {
+        this.type = metadata.getType();
+        List<Field> fields = new ArrayList<Field>();
+        for (NamedTreeNode child : node.getChilds()) {
+            PropertyMetadata property = metadata.getProperty(child.getName());
+            if (property != null) {
+                fields.add(new Field(child, property));
+            }
+        }
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    List<Field> getFields() {
+        return fields;
+    }
+
+    static class Field {
+
+        private final NamedTreeNode node;
+        private final PropertyMetadata property;
+        private final SerializedString serializedName;
+
+        Field(NamedTreeNode node, PropertyMetadata property) {
+            this.node = node;
+            this.property = property;
+            this.serializedName = new SerializedString(property.getName());
+        }
+
+        NamedTreeNode getNode() {
+            return node;
+        }
+
+        String getName() {
+            return property.getName();
+        }
+
+        Class<?> getElementType() {
+            return property.getElementType();
+        }
+
+        /**
+         * The name with its quoted form computed once.
+         */
+        SerializedString getSerializedName() {
+            return serializedName;
+        }
+
+        Object getValue(Object target) {
+            try {
+                return property.getValue(target);
+            } catch (Exception e) {
+                throw new ResultException("Unable to retrieve the value of field: " + node.getName(), e);
+            }
+        }
+
+    }
+
+}
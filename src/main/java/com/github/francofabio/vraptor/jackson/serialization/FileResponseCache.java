@@ -0,0 +1,196 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps serialized responses in files of a local directory, bounded by their
+ * total size and evicting the least recently served first. Responses are
+ * transferred from the file channel straight to the servlet output, so large
+ * exports are served without being loaded on the heap or serialized again.
+ * <p>
+ * A regenerated response is written to a temporary file and renamed over the
+ * previous one, so requests already reading it finish with the old content.
+ * The files found in the directory are kept across restarts.
+ *
+ * <pre>
+ * if (!cache.serve(&quot;catalog&quot;, response)) {
+ *     serialization.cachedIn(cache, &quot;catalog&quot;).from(loadCatalog()).serialize();
+ * }
+ * </pre>
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class FileResponseCache {
+
+    private static final String SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final Logger logger = LoggerFactory.getLogger(FileResponseCache.class);
+
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> files;
+    private long used;
+
+    /**
+     * @param maxBytes the total size the files may take
+     */
+    public FileResponseCache(File directory, long maxBytes) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create the cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.files = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        load();
+    }
+
+    private void load() {
+        File[] existing = directory.listFiles();
+        Arrays.sort(existing, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.valueOf(a.lastModified()).compareTo(b.lastModified());
+            }
+        });
+        for (File file : existing) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            } else if (file.getName().endsWith(SUFFIX)) {
+                files.put(file.getName(), file.length());
+                used += file.length();
+            }
+        }
+        evict(null);
+    }
+
+    /**
+     * @return a new temporary file in the cache directory, to be stored with
+     *         {@link #put(String, File)}
+     */
+    public File newFile() throws IOException {
+        return File.createTempFile("response", TEMP_SUFFIX, directory);
+    }
+
+    /**
+     * Moves the file into the cache, replacing the previous response of the
+     * key. The stored response is kept even when it alone exceeds the size.
+     */
+    public synchronized void put(String key, File content) throws IOException {
+        String name = fileName(key);
+        File target = new File(directory, name);
+        if (!content.renameTo(target)) {
+            /*
+             * Some platforms do not replace the target when renaming
+             */
+            target.delete();
+            if (!content.renameTo(target)) {
+                throw new IOException("Unable to store " + content + " as " + target);
+            }
+        }
+        long length = target.length();
+        Long previous = files.put(name, length);
+        used += length - (previous != null ? previous : 0);
+        evict(name);
+    }
+
+    private void evict(String keep) {
+        for (Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator(); used > maxBytes
+                && eldest.hasNext();) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            used -= entry.getValue();
+            eldest.remove();
+            if (!new File(directory, entry.getKey()).delete()) {
+                logger.warn("Unable to delete the cached response " + entry.getKey());
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized boolean contains(String key) {
+        return files.containsKey(fileName(key));
+    }
+
+    public synchronized void invalidate(String key) {
+        String name = fileName(key);
+        Long length = files.remove(name);
+        if (length != null) {
+            used -= length;
+            new File(directory, name).delete();
+        }
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * Writes the cached response of the key, with its content type and length,
+     * to the response output.
+     * 
+     * @return <code>false</code> when the key is not cached
+     */
+    public boolean serve(String key, HttpServletResponse response) throws IOException {
+        String name = fileName(key);
+        synchronized (this) {
+            if (files.get(name) == null) {
+                return false;
+            }
+        }
+
+        FileInputStream input;
+        try {
+            input = new FileInputStream(new File(directory, name));
+        } catch (FileNotFoundException e) {
+            // evicted meanwhile
+            return false;
+        }
+        try {
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            if (size <= Integer.MAX_VALUE) {
+                response.setContentLength((int) size);
+            }
+            ServletOutputStream output = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(output);
+            for (long position = 0; position < size;) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            output.flush();
+        } finally {
+            input.close();
+        }
+        return true;
+    }
+
+    private static String fileName(String key) {
+        return Digests.sha1(key) + SUFFIX;
+    }
+
+}
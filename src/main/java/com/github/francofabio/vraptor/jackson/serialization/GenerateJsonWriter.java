@@ -0,0 +1,21 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks the <code>vraptor-jackson-processor</code> annotation processor to
+ * generate a {@link GeneratedJsonWriter} for the default projection of the
+ * annotated type and for each {@link JsonProfile} declared on it.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateJsonWriter {
+}
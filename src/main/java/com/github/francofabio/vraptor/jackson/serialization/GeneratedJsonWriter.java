@@ -0,0 +1,20 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.SerializerProvider;
+
+/**
+ * Writes one projection of a type with straight-line code, generated at
+ * compile time for types annotated with {@link GenerateJsonWriter}. Must
+ * produce the same output as the reflective walk of {@link JacksonSerializer}.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public interface GeneratedJsonWriter<T> {
+
+    void write(T value, JsonGenerator generator, SerializerProvider provider) throws IOException;
+
+}
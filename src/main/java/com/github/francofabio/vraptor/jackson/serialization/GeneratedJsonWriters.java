@@ -0,0 +1,75 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.SerializerProvider;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Finds the {@link GeneratedJsonWriter} of a type and profile by the name of
+ * the generated class, caching the result, including its absence.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public final class GeneratedJsonWriters {
+
+    public static final String SUFFIX = "JsonWriter";
+
+    private static final GeneratedJsonWriter<Object> NONE = new GeneratedJsonWriter<Object>() {
+        @Override
+        public void write(Object value, JsonGenerator generator, SerializerProvider provider) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private static final ConcurrentMap<List<Object>, GeneratedJsonWriter<Object>> writers = new ConcurrentHashMap<List<Object>, GeneratedJsonWriter<Object>>();
+
+    private GeneratedJsonWriters() {
+    }
+
+    /**
+     * The binary name of the writer generated for the type and profile, e.g.
+     * <code>com.example.Order_summary_JsonWriter</code>.
+     * 
+     * @param profile the profile name or <code>null</code> for the default
+     *            projection
+     */
+    public static String writerName(String typeName, String profile) {
+        StringBuilder b = new StringBuilder(typeName).append('_');
+        if (profile != null) {
+            for (char c : profile.toCharArray()) {
+                b.append(Character.isJavaIdentifierPart(c) ? c : '_');
+            }
+            b.append('_');
+        }
+        return b.append(SUFFIX).toString();
+    }
+
+    /**
+     * @return the generated writer or <code>null</code> when there is none
+     */
+    @SuppressWarnings("unchecked")
+    public static GeneratedJsonWriter<Object> find(Class<?> type, String profile) {
+        List<Object> key = Arrays.<Object> asList(type, profile);
+        GeneratedJsonWriter<Object> writer = writers.get(key);
+        if (writer == null) {
+            try {
+                Class<?> writerClass = Class.forName(writerName(type.getName(), profile), true, type.getClassLoader());
+                writer = (GeneratedJsonWriter<Object>) writerClass.newInstance();
+            } catch (ClassNotFoundException e) {
+                writer = NONE;
+            } catch (Exception e) {
+                throw new ResultException("Unable to create the generated writer of " + type.getName(), e);
+            }
+            writers.putIfAbsent(key, writer);
+        }
+        return (writer == NONE) ? null : writer;
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.JsonSerializer;
+import org.codehaus.jackson.map.SerializerProvider;
+
+/**
+ * Writes dates as <code>yyyy-MM-dd</code> without a <code>DateFormat</code>.
+ * The text of recently written days is kept with the bounds of the day, so
+ * dates of a day already seen are written without formatting or allocating.
+ * Years out of the four digit range go through the configured format.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class IsoDateSerializer extends JsonSerializer<Date> {
+
+    private static final int CACHE_SIZE = 16;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final TimeZone timeZone;
+    /*
+     * Days are immutable, so racing threads at most compute one again
+     */
+    private final Day[] days = new Day[CACHE_SIZE];
+
+    public IsoDateSerializer() {
+        this(TimeZone.getDefault());
+    }
+
+    public IsoDateSerializer(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    @Override
+    public void serialize(Date value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+        if (value instanceof java.sql.Time) {
+            jgen.writeString(value.toString());
+            return;
+        }
+        long time = value.getTime();
+        int slot = (int) ((time / MILLIS_PER_DAY) & (CACHE_SIZE - 1));
+        Day day = days[slot];
+        if (day == null || time < day.start || time >= day.end) {
+            day = dayOf(time);
+            if (day == null) {
+                provider.defaultSerializeDateValue(value, jgen);
+                return;
+            }
+            days[slot] = day;
+        }
+        jgen.writeString(day.text);
+    }
+
+    /**
+     * @return the day of the instant or <code>null</code> when its year does
+     *         not have four digits
+     */
+    private Day dayOf(long time) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (calendar.get(Calendar.ERA) != GregorianCalendar.AD || year > 9999) {
+            return null;
+        }
+        int month = calendar.get(Calendar.MONTH) + 1;
+        int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+
+        char[] text = new char[10];
+        put(text, 0, year, 4);
+        text[4] = '-';
+        put(text, 5, month, 2);
+        text[7] = '-';
+        put(text, 8, dayOfMonth, 2);
+
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long start = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return new Day(start, calendar.getTimeInMillis(), new String(text));
+    }
+
+    private static void put(char[] text, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static class Day {
+
+        private final long start;
+        private final long end;
+        private final String text;
+
+        Day(long start, long end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Serializes the whole body into a {@link SpillingOutputStream} before
+ * sending it, so the response carries its <code>Content-Length</code> and an
+ * <code>ETag</code>, and is answered with <code>304 Not Modified</code> when
+ * the client already holds it. Only the first bytes are kept on the heap.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class JacksonBufferedSerializer extends JacksonSerializer {
+
+    public static final String ETAG_HEADER = "ETag";
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final SpillingOutputStream buffer;
+    private final Writer output;
+    private final HttpServletResponse response;
+    private final String ifNoneMatch;
+
+    /**
+     * @param threshold the bytes kept on the heap before spilling to disk
+     * @param ifNoneMatch the entity tags the client holds or <code>null</code>
+     */
+    public JacksonBufferedSerializer(HttpServletResponse response, ObjectMapper mapper, boolean withoutRoot,
+            int threshold, String ifNoneMatch) {
+        this(new SpillingOutputStream(threshold), response, mapper, withoutRoot, ifNoneMatch);
+    }
+
+    private JacksonBufferedSerializer(SpillingOutputStream buffer, HttpServletResponse response, ObjectMapper mapper,
+            boolean withoutRoot, String ifNoneMatch) {
+        this(buffer, new BufferedWriter(new OutputStreamWriter(buffer, UTF_8)), response, mapper, withoutRoot,
+                ifNoneMatch);
+    }
+
+    private JacksonBufferedSerializer(SpillingOutputStream buffer, Writer output, HttpServletResponse response,
+            ObjectMapper mapper, boolean withoutRoot, String ifNoneMatch) {
+        super(output, mapper, withoutRoot);
+        this.buffer = buffer;
+        this.output = output;
+        this.response = response;
+        this.ifNoneMatch = ifNoneMatch;
+    }
+
+    @Override
+    public void serialize() {
+        try {
+            super.serialize();
+            output.close();
+
+            String etag = "\"" + buffer.getDigest() + "\"";
+            response.setHeader(ETAG_HEADER, etag);
+            if (matches(etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            response.setCharacterEncoding("UTF-8");
+            if (buffer.getLength() <= Integer.MAX_VALUE) {
+                response.setContentLength((int) buffer.getLength());
+            }
+            OutputStream target = response.getOutputStream();
+            buffer.writeTo(target);
+            target.flush();
+        } catch (IOException e) {
+            throw new ResultException("Unable to write the buffered response", e);
+        } finally {
+            buffer.dispose();
+        }
+    }
+
+    /*
+     * Weak comparison, as If-None-Match requires
+     */
+    private boolean matches(String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
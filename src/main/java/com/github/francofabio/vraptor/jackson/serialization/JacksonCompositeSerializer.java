@@ -0,0 +1,148 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializerProvider;
+
+import br.com.caelum.vraptor.serialization.Serializer;
+
+import com.github.francofabio.vraptor.jackson.metadata.MetadataRegistry;
+
+/**
+ * Serializes several named roots, each with its own projection, as the
+ * fields of one JSON object, e.g.
+ * <code>{"orders":[...],"summary":{...}}</code>. The roots are written in
+ * order in a single pass over the same generator.
+ * <p>
+ * <code>include</code>, <code>exclude</code> and <code>recursive</code> apply
+ * to the last added root; {@link #profile(String)} applies to the next one.
+ * Null roots are left out.
+ * 
+ * <pre>
+ * serialization.composite()
+ *     .add("orders", orders).include("customer")
+ *     .add("summary", summary)
+ *     .serialize();
+ * </pre>
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class JacksonCompositeSerializer implements Serializer {
+
+    private final Writer writer;
+    private final ObjectMapper mapper;
+    private final List<String> names;
+    private final List<JacksonSerializer> roots;
+    private String profile;
+    private LazyLoading lazyLoading;
+    private LazinessInspector inspector;
+    private boolean indented;
+
+    public JacksonCompositeSerializer(Writer writer, ObjectMapper mapper) {
+        this.writer = writer;
+        this.mapper = mapper;
+        this.names = new ArrayList<String>();
+        this.roots = new ArrayList<JacksonSerializer>();
+    }
+
+    /**
+     * Adds a root written as the named field of the response.
+     */
+    public JacksonCompositeSerializer add(String name, Object object) {
+        if (names.contains(name)) {
+            throw new IllegalArgumentException("Duplicated root " + name);
+        }
+        JacksonSerializer root = new JacksonSerializer(null, mapper, MetadataRegistry.getInstance())
+                .withoutRoot().profile(profile).lazyLoading(lazyLoading, inspector);
+        root.from(object, name);
+        names.add(name);
+        roots.add(root);
+        profile = null;
+        return this;
+    }
+
+    /**
+     * Uses the named {@link JsonProfile} for the next added root.
+     */
+    public JacksonCompositeSerializer profile(String name) {
+        this.profile = name;
+        return this;
+    }
+
+    /**
+     * Handles lazy-loading values of the roots added from now on.
+     */
+    public JacksonCompositeSerializer lazyLoading(LazyLoading mode, LazinessInspector inspector) {
+        this.lazyLoading = mode;
+        this.inspector = inspector;
+        return this;
+    }
+
+    public JacksonCompositeSerializer indented() {
+        this.indented = true;
+        return this;
+    }
+
+    @Override
+    public JacksonCompositeSerializer include(String... fields) {
+        last().include(fields);
+        return this;
+    }
+
+    @Override
+    public JacksonCompositeSerializer exclude(String... fields) {
+        last().exclude(fields);
+        return this;
+    }
+
+    @Override
+    public JacksonCompositeSerializer recursive() {
+        last().recursive();
+        return this;
+    }
+
+    private JacksonSerializer last() {
+        if (roots.isEmpty()) {
+            throw new IllegalStateException("No root was added");
+        }
+        return roots.get(roots.size() - 1);
+    }
+
+    /**
+     * @return the properties each root will read, by name
+     */
+    public Map<String, ProjectionDescriptor> describe() {
+        Map<String, ProjectionDescriptor> descriptors = new LinkedHashMap<String, ProjectionDescriptor>();
+        for (int i = 0; i < roots.size(); i++) {
+            descriptors.put(names.get(i), roots.get(i).describe());
+        }
+        return descriptors;
+    }
+
+    @Override
+    public void serialize() {
+        JacksonSerializer.write(mapper, writer, indented, new JsonContent() {
+            @Override
+            public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+                generator.writeStartObject();
+                for (int i = 0; i < roots.size(); i++) {
+                    JacksonSerializer root = roots.get(i);
+                    if (root.getObject() != null) {
+                        generator.writeFieldName(names.get(i));
+                        root.serializeRoot(generator, provider);
+                    }
+                }
+                generator.writeEndObject();
+            }
+        });
+    }
+
+}
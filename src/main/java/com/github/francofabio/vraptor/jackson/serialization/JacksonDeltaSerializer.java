@@ -0,0 +1,108 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Serializes the resource into memory and answers with a JSON Patch against
+ * the version the client holds, when its snapshot is still cached, or with
+ * the full body otherwise. The version of the new body is sent in the
+ * {@link #VERSION_HEADER} and its snapshot is kept for the next request.
+ * <p>
+ * Every answer varies on the {@link #BASE_VERSION_HEADER}, so shared caches
+ * do not hand a patch to a client holding another version.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class JacksonDeltaSerializer extends JacksonSerializer {
+
+    public static final String VERSION_HEADER = "X-Json-Version";
+    public static final String BASE_VERSION_HEADER = "X-Json-Base-Version";
+    public static final String PATCH_CONTENT_TYPE = "application/json-patch+json";
+
+    private static final Logger logger = LoggerFactory.getLogger(JacksonDeltaSerializer.class);
+
+    private final StringWriter buffer;
+    private final HttpServletResponse response;
+    private final String resource;
+    private final String baseVersion;
+    private final SnapshotCache snapshots;
+
+    /**
+     * @param resource identifies the resource, e.g. the request URI
+     * @param baseVersion the version the client holds or <code>null</code>
+     */
+    public JacksonDeltaSerializer(HttpServletResponse response, ObjectMapper mapper, boolean withoutRoot,
+            String resource, String baseVersion, SnapshotCache snapshots) {
+        this(new StringWriter(), response, mapper, withoutRoot, resource, baseVersion, snapshots);
+    }
+
+    private JacksonDeltaSerializer(StringWriter buffer, HttpServletResponse response, ObjectMapper mapper,
+            boolean withoutRoot, String resource, String baseVersion, SnapshotCache snapshots) {
+        super(buffer, mapper, withoutRoot);
+        this.buffer = buffer;
+        this.response = response;
+        this.resource = resource;
+        this.baseVersion = baseVersion;
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public void serialize() {
+        super.serialize();
+        String body = buffer.toString();
+        String version = versionOf(body);
+        String base = (baseVersion != null) ? snapshots.get(resource, baseVersion) : null;
+        snapshots.put(resource, version, body);
+
+        String content = body;
+        if (base != null) {
+            String patch = diff(base, body);
+            /*
+             * A patch larger than the body is of no use to the client
+             */
+            if (patch.length() < body.length()) {
+                response.setContentType(PATCH_CONTENT_TYPE);
+                content = patch;
+            }
+        } else if (baseVersion != null) {
+            logger.debug("Snapshot " + baseVersion + " of " + resource + " not found, sending the full body");
+        }
+
+        response.setHeader(VERSION_HEADER, version);
+        response.addHeader("Vary", BASE_VERSION_HEADER);
+        try {
+            response.getWriter().write(content);
+            response.getWriter().flush();
+        } catch (IOException e) {
+            throw new ResultException("Unable to serialize data", e);
+        }
+    }
+
+    private String diff(String base, String body) {
+        ObjectMapper mapper = getObjectMapper();
+        try {
+            return mapper.writeValueAsString(JsonPatch.diff(mapper.readTree(base), mapper.readTree(body)));
+        } catch (IOException e) {
+            throw new ResultException("Unable to generate JSON Patch", e);
+        }
+    }
+
+    /**
+     * The version is a digest of the body, so equal bodies have the same
+     * version on every node.
+     */
+    static String versionOf(String body) {
+        return Digests.sha1(body);
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Serializes into a file of the {@link FileResponseCache}, stores it under
+ * the key and then serves it from the cache. The file is only created once
+ * the serializer writes.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class JacksonFileCacheSerializer extends JacksonSerializer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final CacheFileOutput file;
+    private final Writer output;
+    private final HttpServletResponse response;
+    private final FileResponseCache cache;
+    private final String key;
+
+    public JacksonFileCacheSerializer(HttpServletResponse response, ObjectMapper mapper, boolean withoutRoot,
+            FileResponseCache cache, String key) {
+        this(new CacheFileOutput(cache), response, mapper, withoutRoot, cache, key);
+    }
+
+    private JacksonFileCacheSerializer(CacheFileOutput file, HttpServletResponse response, ObjectMapper mapper,
+            boolean withoutRoot, FileResponseCache cache, String key) {
+        this(file, new BufferedWriter(new OutputStreamWriter(file, UTF_8)), response, mapper, withoutRoot, cache, key);
+    }
+
+    private JacksonFileCacheSerializer(CacheFileOutput file, Writer output, HttpServletResponse response,
+            ObjectMapper mapper, boolean withoutRoot, FileResponseCache cache, String key) {
+        super(output, mapper, withoutRoot);
+        this.file = file;
+        this.output = output;
+        this.response = response;
+        this.cache = cache;
+        this.key = key;
+    }
+
+    @Override
+    public void serialize() {
+        try {
+            super.serialize();
+            File stored = file.open();
+            output.close();
+            cache.put(key, stored);
+            if (!cache.serve(key, response)) {
+                throw new ResultException("Cached response " + key + " was evicted before being served");
+            }
+        } catch (IOException e) {
+            throw new ResultException("Unable to cache response " + key, e);
+        } finally {
+            try {
+                output.close();
+            } catch (IOException e) {
+                // already closed by the generator
+            }
+            /*
+             * Only left when the response was not stored
+             */
+            file.delete();
+        }
+    }
+
+    /**
+     * Creates the file of the cache on the first byte, so a serializer that is
+     * never serialized leaves no file behind.
+     */
+    private static class CacheFileOutput extends OutputStream {
+
+        private final FileResponseCache cache;
+        private File file;
+        private OutputStream output;
+
+        CacheFileOutput(FileResponseCache cache) {
+            this.cache = cache;
+        }
+
+        File open() throws IOException {
+            if (output == null) {
+                file = cache.newFile();
+                output = new FileOutputStream(file);
+            }
+            return file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            open();
+            output.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            open();
+            output.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (output != null) {
+                output.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (output != null) {
+                output.close();
+            }
+        }
+
+        void delete() {
+            if (file != null && file.exists()) {
+                file.delete();
+            }
+        }
+
+    }
+
+}
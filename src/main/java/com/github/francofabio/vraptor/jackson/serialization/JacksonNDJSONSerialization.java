@@ -0,0 +1,82 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import br.com.caelum.vraptor.ioc.Component;
+import br.com.caelum.vraptor.serialization.Serialization;
+import br.com.caelum.vraptor.serialization.Serializer;
+import br.com.caelum.vraptor.serialization.SerializerBuilder;
+import br.com.caelum.vraptor.view.ResultException;
+
+@Component
+public class JacksonNDJSONSerialization implements Serialization {
+
+    /*
+     * Subclasses get a mapper of their own, as in JacksonSerialization
+     */
+    private static final ObjectMapper MAPPER = JacksonSerialization.createObjectMapper();
+
+    private final HttpServletResponse response;
+    protected final ObjectMapper mapper;
+    private String profile;
+    private LazyLoading lazyLoading;
+    private LazinessInspector inspector;
+
+    public JacksonNDJSONSerialization(HttpServletResponse response) {
+        this.response = response;
+        this.mapper = (getClass() == JacksonNDJSONSerialization.class) ? MAPPER
+                : JacksonSerialization.createObjectMapper();
+    }
+
+    @Override
+    public boolean accepts(String format) {
+        return "ndjson".equals(format);
+    }
+
+    @Override
+    public <T> Serializer from(T object) {
+        return from(object, null);
+    }
+
+    @Override
+    public <T> Serializer from(T object, String alias) {
+        response.setContentType("application/x-ndjson");
+        return getSerializer().from(object, alias);
+    }
+
+    /**
+     * Serializes the elements with the named {@link JsonProfile} of their type.
+     */
+    public JacksonNDJSONSerialization profile(String name) {
+        this.profile = name;
+        return this;
+    }
+
+    /**
+     * Handles the lazy-loading proxies and collections reported by the
+     * inspector according to the mode, e.g. loading them in batches.
+     */
+    public JacksonNDJSONSerialization lazyLoading(LazyLoading mode, LazinessInspector inspector) {
+        this.lazyLoading = mode;
+        this.inspector = inspector;
+        return this;
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    protected SerializerBuilder getSerializer() {
+        try {
+            return new JacksonNDJSONSerializer(response.getWriter(), mapper).profile(profile).lazyLoading(lazyLoading,
+                    inspector);
+        } catch (IOException e) {
+            throw new ResultException("Unable to serialize data", e);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializerProvider;
+
+import br.com.caelum.vraptor.serialization.Serializer;
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * Serializes each element of a collection, array, iterable or iterator as a standalone
+ * JSON document in its own line (newline-delimited JSON). Elements are written
+ * one at a time with the same include/exclude projection of
+ * {@link JacksonSerializer}, so an iterator source is never held in memory.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class JacksonNDJSONSerializer extends JacksonSerializer {
+
+    private final List<Object> head;
+    private Iterator<?> elements;
+    private GeneratedJsonWriter<Object> generated;
+
+    public JacksonNDJSONSerializer(Writer writer, ObjectMapper mapper) {
+        super(writer, mapper, true);
+        this.head = new ArrayList<Object>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterator<?> iteratorOf(Object object) {
+        if (object == null) {
+            return Collections.emptyList().iterator();
+        }
+        if (object instanceof Iterator<?>) {
+            return (Iterator<Object>) object;
+        }
+        if (object instanceof Iterable<?>) {
+            return ((Iterable<Object>) object).iterator();
+        }
+        if (object instanceof Object[]) {
+            return Arrays.asList((Object[]) object).iterator();
+        }
+        return Collections.singletonList(object).iterator();
+    }
+
+    @Override
+    public <T> Serializer from(T object, String alias) {
+        elements = iteratorOf(object);
+        head.clear();
+
+        /*
+         * The first non null element defines the projection, the elements read
+         * until it are kept to be written before the remaining ones
+         */
+        Object first = null;
+        while (first == null && elements.hasNext()) {
+            first = elements.next();
+            head.add(first);
+        }
+
+        return super.from(first, alias);
+    }
+
+    @Override
+    public void serialize() {
+        try {
+            generated = (getRootClass() != null && !isNonPojo(getRootClass())) ? findGeneratedWriter() : null;
+            for (Object element : head) {
+                writeLine(element);
+            }
+            while (elements.hasNext()) {
+                writeLine(elements.next());
+            }
+            getWriter().flush();
+        } catch (Exception e) {
+            throw new ResultException("Unable to generate JSON", e);
+        }
+    }
+
+    protected void writeLine(final Object element) throws IOException {
+        ObjectMapper mapper = getObjectMapper();
+        JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(getWriter());
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        if (element == null || isRecursive() || isNonPojo(getRootClass())) {
+            mapper.writeValue(generator, element);
+        } else {
+            mapper.writeValue(generator, new JsonContent() {
+                @Override
+                public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+                    if (generated != null && element.getClass() == getRootClass()) {
+                        generated.write(element, generator, provider);
+                    } else {
+                        JacksonNDJSONSerializer.this.serialize(generator, provider, getProjection(), element);
+                    }
+                }
+            });
+        }
+
+        generator.close();
+        getWriter().write('\n');
+    }
+
+}
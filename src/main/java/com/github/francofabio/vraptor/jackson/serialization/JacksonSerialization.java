@@ -1,13 +1,19 @@
 package com.github.francofabio.vraptor.jackson.serialization;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
 import java.text.SimpleDateFormat;
+import java.util.Date;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.codehaus.jackson.Version;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.SerializationConfig;
 import org.codehaus.jackson.map.annotate.JsonSerialize.Inclusion;
+import org.codehaus.jackson.map.module.SimpleModule;
 
 import br.com.caelum.vraptor.ioc.Component;
 import br.com.caelum.vraptor.serialization.JSONSerialization;
@@ -19,15 +25,44 @@ import br.com.caelum.vraptor.view.ResultException;
 @Component
 public class JacksonSerialization implements JSONSerialization {
 
+    public static final String DEFAULT_FIELDS_PARAMETER = "fields";
+
+    /*
+     * Shared by all requests, so its serializer caches are reused. Subclasses
+     * may reconfigure the mapper, as they did before it was shared, so each of
+     * their instances gets its own
+     */
+    private static final ObjectMapper MAPPER = createObjectMapper();
+
     private final HttpServletResponse response;
+    private final HttpServletRequest request;
     protected final ObjectMapper mapper;
     private boolean withoutRoot;
+    private boolean indented;
+    private String profile;
+    private LazyLoading lazyLoading;
+    private LazinessInspector inspector;
+    private String fieldsParameter;
+    private String deltaResource;
+    private FileResponseCache fileCache;
+    private String cacheKey;
+    private int bufferThreshold;
 
-    @SuppressWarnings("deprecation")
     public JacksonSerialization(HttpServletResponse response) {
+        this(response, null);
+    }
+
+    public JacksonSerialization(HttpServletResponse response, HttpServletRequest request) {
         this.response = response;
+        this.request = request;
         this.withoutRoot = false;
-        mapper = new ObjectMapper();
+        this.bufferThreshold = -1;
+        this.mapper = (getClass() == JacksonSerialization.class) ? MAPPER : createObjectMapper();
+    }
+
+    @SuppressWarnings("deprecation")
+    static ObjectMapper createObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
         mapper.configure(SerializationConfig.Feature.WRITE_DATES_AS_TIMESTAMPS, false);
         mapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, false);
         mapper.configure(SerializationConfig.Feature.WRITE_NULL_MAP_VALUES, false);
@@ -35,6 +70,16 @@ public class JacksonSerialization implements JSONSerialization {
 
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         mapper.setDateFormat(sdf);
+
+        StreamingBinarySerializer binarySerializer = new StreamingBinarySerializer();
+        SimpleModule module = new SimpleModule("vraptor-jackson", new Version(1, 0, 0, null));
+        module.addSerializer(InputStream.class, binarySerializer);
+        module.addSerializer(Base64File.class, binarySerializer);
+        module.addSerializer(Blob.class, binarySerializer);
+        module.addSerializer(Date.class, new IsoDateSerializer());
+        mapper.registerModule(module);
+
+        return mapper;
     }
 
     @Override
@@ -61,17 +106,173 @@ public class JacksonSerialization implements JSONSerialization {
 
     @Override
     public JSONSerialization indented() {
-        mapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, true);
+        this.indented = true;
+        return this;
+    }
+
+    /**
+     * Starts a response made of several named roots, each with its own
+     * projection, written in one pass. A {@link #profile(String)} set before
+     * applies to the first root; the roots can neither be left out nor
+     * narrowed by the client, and the body is written straight to the
+     * response, so those settings are refused.
+     */
+    public JacksonCompositeSerializer composite() {
+        if (withoutRoot || fieldsParameter != null) {
+            throw new IllegalStateException("Composite responses always have their roots and fields");
+        }
+        if (deltaResource != null || fileCache != null || bufferThreshold >= 0) {
+            throw new IllegalStateException("Composite responses are written straight to the response");
+        }
+        response.setContentType("application/json");
+        try {
+            JacksonCompositeSerializer composite = new JacksonCompositeSerializer(response.getWriter(), mapper)
+                    .lazyLoading(lazyLoading, inspector).profile(profile);
+            return indented ? composite.indented() : composite;
+        } catch (IOException e) {
+            throw new ResultException("Unable to serialize data", e);
+        }
+    }
+
+    /**
+     * Serializes the next object with the named {@link JsonProfile} of its type.
+     */
+    public JacksonSerialization profile(String name) {
+        this.profile = name;
+        return this;
+    }
+
+    /**
+     * Lets the client narrow the serialized fields with the
+     * <code>fields</code> request parameter.
+     * 
+     * @see #sparseFields(String)
+     */
+    public JacksonSerialization sparseFields() {
+        return sparseFields(DEFAULT_FIELDS_PARAMETER);
+    }
+
+    /**
+     * Lets the client narrow the serialized fields with a comma separated list
+     * in the request parameter, such as <code>id,name,products.id</code>. The
+     * list is intersected with the fields included by the resource, so it can
+     * never expose a field that was not included.
+     */
+    public JacksonSerialization sparseFields(String parameter) {
+        if (request == null) {
+            throw new IllegalStateException("Sparse fieldsets need the current request");
+        }
+        this.fieldsParameter = parameter;
+        return this;
+    }
+
+    /**
+     * Answers with a JSON Patch against the version the client sends in the
+     * {@link JacksonDeltaSerializer#BASE_VERSION_HEADER}, when its snapshot is
+     * still cached, keyed by the request URI and query string.
+     * 
+     * @see #delta(String)
+     */
+    public JacksonSerialization delta() {
+        if (request == null) {
+            throw new IllegalStateException("Delta responses need the current request");
+        }
+        String query = request.getQueryString();
+        return delta(request.getRequestURI() + (query != null ? "?" + query : ""));
+    }
+
+    /**
+     * Answers with a JSON Patch against the version the client holds of the
+     * resource, falling back to the full body when that version is not
+     * cached. The version of the body is sent in the
+     * {@link JacksonDeltaSerializer#VERSION_HEADER}.
+     */
+    public JacksonSerialization delta(String resource) {
+        if (request == null) {
+            throw new IllegalStateException("Delta responses need the current request");
+        }
+        this.deltaResource = resource;
         return this;
     }
 
+    /**
+     * Writes the response to a file of the cache under the key and serves it
+     * from there, so later requests can be served with
+     * {@link FileResponseCache#serve(String, HttpServletResponse)}. Cannot be
+     * combined with {@link #delta()} or {@link #buffered()}.
+     */
+    public JacksonSerialization cachedIn(FileResponseCache cache, String key) {
+        this.fileCache = cache;
+        this.cacheKey = key;
+        return this;
+    }
+
+    /**
+     * Buffers the whole body before sending it, with its length and entity
+     * tag, keeping up to {@link SpillingOutputStream#DEFAULT_THRESHOLD} bytes
+     * on the heap.
+     * 
+     * @see #buffered(int)
+     */
+    public JacksonSerialization buffered() {
+        return buffered(SpillingOutputStream.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Buffers the whole body before sending it, spilling to a temporary file
+     * past the threshold, so the response carries its
+     * <code>Content-Length</code> and <code>ETag</code>. When the request is
+     * known, a matching <code>If-None-Match</code> is answered with
+     * <code>304 Not Modified</code>.
+     */
+    public JacksonSerialization buffered(int threshold) {
+        this.bufferThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Handles the lazy-loading proxies and collections reported by the
+     * inspector according to the mode, e.g. loading them in batches.
+     */
+    public JacksonSerialization lazyLoading(LazyLoading mode, LazinessInspector inspector) {
+        this.lazyLoading = mode;
+        this.inspector = inspector;
+        return this;
+    }
+
+    /**
+     * @return the mapper of this instance; subclasses get their own, which
+     *         they may reconfigure without affecting other requests
+     */
     protected ObjectMapper getObjectMapper() {
         return mapper;
     }
 
     protected SerializerBuilder getSerializer() {
+        int modes = (fileCache != null ? 1 : 0) + (deltaResource != null ? 1 : 0) + (bufferThreshold >= 0 ? 1 : 0);
+        if (modes > 1) {
+            throw new IllegalStateException("Only one of cachedIn, delta and buffered may be used at once");
+        }
         try {
-            return new JacksonSerializer(response.getWriter(), mapper, withoutRoot);
+            JacksonSerializer serializer;
+            if (fileCache != null) {
+                serializer = new JacksonFileCacheSerializer(response, mapper, withoutRoot, fileCache, cacheKey);
+            } else if (deltaResource != null) {
+                serializer = new JacksonDeltaSerializer(response, mapper, withoutRoot, deltaResource,
+                        request.getHeader(JacksonDeltaSerializer.BASE_VERSION_HEADER), SnapshotCache.getInstance());
+            } else if (bufferThreshold >= 0) {
+                serializer = new JacksonBufferedSerializer(response, mapper, withoutRoot, bufferThreshold,
+                        (request != null) ? request.getHeader(JacksonBufferedSerializer.IF_NONE_MATCH_HEADER) : null);
+            } else {
+                serializer = new JacksonSerializer(response.getWriter(), mapper, withoutRoot);
+            }
+            if (indented) {
+                serializer.indented();
+            }
+            if (fieldsParameter != null) {
+                serializer.fields(request.getParameter(fieldsParameter));
+            }
+            return serializer.profile(profile).lazyLoading(lazyLoading, inspector);
         } catch (IOException e) {
             throw new ResultException("Unable to serialize data", e);
         }
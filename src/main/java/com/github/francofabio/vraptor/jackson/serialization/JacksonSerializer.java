@@ -1,42 +1,64 @@
 package com.github.francofabio.vraptor.jackson.serialization;
 
+import java.io.IOException;
 import java.io.Writer;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.lang.reflect.TypeVariable;
-import java.util.AbstractMap;
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-
-import net.vidageek.mirror.dsl.Mirror;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.map.SerializerProvider;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
-import org.codehaus.jackson.node.ArrayNode;
-import org.codehaus.jackson.node.ObjectNode;
 
 import br.com.caelum.vraptor.serialization.Serializer;
 import br.com.caelum.vraptor.serialization.SerializerBuilder;
 import br.com.caelum.vraptor.view.ResultException;
 
+import com.github.francofabio.vraptor.jackson.metadata.MetadataRegistry;
+import com.github.francofabio.vraptor.jackson.metadata.PropertyMetadata;
+
 public class JacksonSerializer implements SerializerBuilder {
 
+    private static final ConcurrentMap<Class<?>, NamedTreeNode> defaultTrees = new ConcurrentHashMap<Class<?>, NamedTreeNode>();
+
     private final ObjectMapper mapper;
-    private final NamedTreeNode treeFields;
+    private final MetadataRegistry metadata;
     private final Writer writer;
+    private NamedTreeNode treeFields;
+    private boolean sharedTree;
+    private String profile;
+    private SerializationProfile compiledProfile;
+    private String fields;
+    private NamedTreeNode projection;
+    private LazinessInspector inspector;
+    private LazyLoading lazyLoading = LazyLoading.INITIALIZE;
     private Class<?> rootClass;
     private Object object;
     private boolean recursive = false;
     private boolean withoutRoot = false;
+    private boolean indented = false;
+    private boolean customized = false;
 
     public JacksonSerializer(Writer writer, ObjectMapper mapper) {
+        this(writer, mapper, MetadataRegistry.getInstance());
+    }
+
+    public JacksonSerializer(Writer writer, ObjectMapper mapper, MetadataRegistry metadata) {
         this.writer = writer;
         this.treeFields = new NamedTreeNode(null, null);
         this.mapper = mapper;
+        this.metadata = metadata;
     }
 
     public JacksonSerializer(Writer writer, ObjectMapper mapper, boolean withoutRoot) {
@@ -54,10 +76,40 @@ public class JacksonSerializer implements SerializerBuilder {
                 }
             }
         }
+        if (isArrayOfPojos(obj.getClass())) {
+            for (Object element : (Object[]) obj) {
+                if (element != null) {
+                    return element.getClass();
+                }
+            }
+            return obj.getClass().getComponentType();
+        }
 
         return obj.getClass();
     }
 
+    /**
+     * Arrays of leaf types, including the primitive ones, are written as a
+     * whole; only arrays of POJOs are walked like collections.
+     */
+    private static boolean isArrayOfPojos(Class<?> type) {
+        return type.isArray() && !isNonPojo(type);
+    }
+
+    /**
+     * A fixed-size view of collections and arrays of POJOs, without copying.
+     */
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> elementsOf(Object value) {
+        if (value instanceof Object[] && isArrayOfPojos(value.getClass())) {
+            return Arrays.asList((Object[]) value);
+        }
+        if (value instanceof Collection<?>) {
+            return (Collection<Object>) value;
+        }
+        return null;
+    }
+
     private static String getFieldName(Class<?> type) {
         String fieldName = type.getSimpleName();
         if (fieldName == null || "".equals(fieldName)) {
@@ -70,76 +122,36 @@ public class JacksonSerializer implements SerializerBuilder {
         return fieldName;
     }
 
-    private static boolean isNonPojo(Class<?> type) {
-        return type.isPrimitive() || type.isEnum() || Number.class.isAssignableFrom(type) || type.equals(String.class)
-                || Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)
-                || Boolean.class.equals(type) || Character.class.equals(type) || Map.class.isAssignableFrom(type)
-                || Object.class.equals(type) || (type.isArray() && type.getComponentType().equals(Byte.TYPE));
+    protected static boolean isNonPojo(Class<?> type) {
+        return MetadataRegistry.getInstance().getClassMetadata(type).isLeaf();
     }
 
     private static boolean isCollection(Type type) {
-        if (type instanceof ParameterizedType) {
-            ParameterizedType ptype = (ParameterizedType) type;
-            return Collection.class.isAssignableFrom((Class<?>) ptype.getRawType())
-                    || Map.class.isAssignableFrom((Class<?>) ptype.getRawType());
-        }
-        return Collection.class.isAssignableFrom((Class<?>) type);
+        return MetadataRegistry.isCollection(type);
     }
 
     protected void includePrimitiveFields(Class<?> clazz, String root) {
-        for (Field field : new Mirror().on(clazz).reflectAll().fields()) {
-            if (isNonPojo(field.getType())) {
-                String fieldPath = (root != null) ? root + "." + field.getName() : field.getName();
-                addField(fieldPath);
+        for (PropertyMetadata property : metadata.getClassMetadata(clazz).getProperties()) {
+            if (property.isIncludedByDefault()) {
+                String fieldPath = (root != null) ? root + "." + property.getName() : property.getName();
+                editableTree().addChild(fieldPath);
             }
         }
     }
 
-    private Class<?> getFieldType(Field f) {
-        Type type = f.getGenericType();
-
-        if (type instanceof ParameterizedType) {
-            ParameterizedType ptype = (ParameterizedType) type;
-
-            if (isCollection(type)) {
-                Type atype = ptype.getActualTypeArguments()[0];
-
-                if (atype instanceof TypeVariable<?>) {
-                    return (Class<?>) ptype.getRawType();
-                }
-
-                return (Class<?>) atype;
-            }
-        }
-
-        return (Class<?>) type;
-    }
-
-    private Entry<Field, Object> field(String fieldName, Class<?> clazz) {
-        return field(fieldName, clazz, null);
-    }
-
-    private Entry<Field, Object> field(String fieldName, Class<?> clazz, Object value) {
+    private PropertyMetadata field(String fieldName, Class<?> clazz) {
         String[] path = fieldName.split("\\.");
-        Field lastField = null;
-        Object lastValue = value;
+        PropertyMetadata lastField = null;
 
         for (String p : path) {
-            lastField = new Mirror().on(clazz).reflect().field(p);
+            lastField = metadata.getClassMetadata(clazz).getProperty(p);
             if (lastField == null) {
                 throw new ResultException("Field " + fieldName + " not found. Class: " + clazz);
             }
-            if (value != null) {
-                try {
-                    lastValue = new Mirror().on(lastValue).invoke().getterFor(lastField.getName());
-                } catch (Exception e) {
-                    throw new ResultException("Unable to retrieve the value of field: " + fieldName, e);
-                }
-            }
-            clazz = getFieldType(lastField);
+            clazz = lastField.getElementType();
         }
 
-        return new AbstractMap.SimpleEntry<Field, Object>(lastField, lastValue);
+        return lastField;
     }
 
     private void addField(String fieldName) {
@@ -149,51 +161,312 @@ public class JacksonSerializer implements SerializerBuilder {
         }
         
         // check field
-        Entry<Field, Object> fieldEntry = field(fieldName, rootClass);
-
-        Class<?> fieldType = getFieldType(fieldEntry.getKey());
+        Class<?> fieldType = field(fieldName, rootClass).getElementType();
         if (!isNonPojo(fieldType)) {
             includePrimitiveFields(fieldType, fieldName);
         } else {
-            treeFields.addChild(fieldName);
+            editableTree().addChild(fieldName);
+        }
+    }
+
+    /**
+     * Trees of profiles are shared between serializers, so they are copied
+     * before the first change. Any change discards the computed projection.
+     */
+    private NamedTreeNode editableTree() {
+        projection = null;
+        if (sharedTree) {
+            treeFields = treeFields.copy();
+            sharedTree = false;
+        }
+        return treeFields;
+    }
+
+    /**
+     * Checks that the path exists in the root class.
+     * 
+     * @throws ResultException when the path is not valid
+     */
+    void checkField(String fieldName) {
+        field(fieldName, rootClass);
+    }
+
+    /**
+     * Starts from the default projection of the type, which is shared and
+     * copied before the first change.
+     */
+    void initialize(Class<?> type) {
+        rootClass = type;
+        compiledProfile = null;
+        if (type != null && !isNonPojo(type)) {
+            treeFields = withName(defaultTree(type));
+            sharedTree = true;
+        }
+    }
+
+    private NamedTreeNode defaultTree(Class<?> type) {
+        NamedTreeNode tree = defaultTrees.get(type);
+        if (tree == null) {
+            tree = new NamedTreeNode(null, null);
+            for (PropertyMetadata property : metadata.getClassMetadata(type).getProperties()) {
+                if (property.isIncludedByDefault()) {
+                    tree.addChild(property.getName());
+                }
+            }
+            NamedTreeNode previous = defaultTrees.putIfAbsent(type, tree);
+            if (previous != null) {
+                tree = previous;
+            }
         }
+        return tree;
     }
 
-    protected void serializeCollection(ArrayNode arrayNode, NamedTreeNode node, Collection<Object> collection) {
+    /**
+     * Writes the elements with the plan of their runtime class. The plan of
+     * the last class is kept inline, so a list of a single type resolves its
+     * plan once.
+     */
+    protected void serializeCollection(JsonGenerator generator, SerializerProvider provider, NamedTreeNode node,
+            Collection<Object> collection) throws IOException {
+        if (lazyLoading == LazyLoading.BATCH) {
+            initializeAll(node, collection);
+        }
+        generator.writeStartArray();
+        ElementPlan plan = null;
         for (Object o : collection) {
-            ObjectNode item = arrayNode.addObject();
-            serialize(item, node, o);
+            if (o == null) {
+                generator.writeNull();
+                continue;
+            }
+            if (isDeferred(o)) {
+                if (lazyLoading == LazyLoading.IDENTIFIER) {
+                    provider.defaultSerializeValue(inspector.getIdentifier(o), generator);
+                }
+                continue;
+            }
+            if (plan == null || plan.getType() != o.getClass()) {
+                plan = getPlan(node, o.getClass());
+            }
+            serialize(generator, provider, plan, o);
         }
+        generator.writeEndArray();
     }
 
-    @SuppressWarnings({ "unchecked" })
-    protected void serialize(ObjectNode jsonNode, NamedTreeNode root, Object value) {
-        boolean allowNull = mapper.getSerializationConfig().getSerializationInclusion() != JsonSerialize.Inclusion.NON_NULL;
-        for (NamedTreeNode node : root.getChilds()) {
-            if (node.containsChilds()) {
-                Entry<Field, Object> entry = field(node.getName(), value.getClass(), value);
-                Object fieldValue = entry.getValue();
-
-                if (fieldValue != null && Collection.class.isAssignableFrom(fieldValue.getClass())) {
-                    ArrayNode arrayNode = jsonNode.putArray(entry.getKey().getName());
-                    Collection<Object> collection = (Collection<Object>) entry.getValue();
-
-                    serializeCollection(arrayNode, node, collection);
-                } else {
-                    if (fieldValue != null || (fieldValue == null && allowNull)) {
-                        ObjectNode objectNode = jsonNode.putObject(entry.getKey().getName());
-                        serialize(objectNode, node, fieldValue);
+    /**
+     * Writes the entries of the map one by one, projecting each value with the
+     * plan of its runtime class. Null values are skipped.
+     */
+    protected void serializeMap(JsonGenerator generator, SerializerProvider provider, NamedTreeNode node, Map<?, ?> map)
+            throws IOException {
+        if (lazyLoading == LazyLoading.BATCH) {
+            initializeAll(node, map.values());
+        }
+        generator.writeStartObject();
+        ElementPlan plan = null;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            String key = String.valueOf(entry.getKey());
+            if (isDeferred(value)) {
+                if (lazyLoading == LazyLoading.IDENTIFIER) {
+                    generator.writeFieldName(key);
+                    provider.defaultSerializeValue(inspector.getIdentifier(value), generator);
+                }
+                continue;
+            }
+            if (plan == null || plan.getType() != value.getClass()) {
+                plan = getPlan(node, value.getClass());
+            }
+            generator.writeFieldName(key);
+            serialize(generator, provider, plan, value);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Loads, in two calls to the inspector, the values that were not loaded
+     * and then the projected associations of all of them.
+     */
+    private void initializeAll(NamedTreeNode node, Collection<?> values) {
+        List<Object> pending = new ArrayList<Object>();
+        for (Object value : values) {
+            if (value != null && !inspector.isInitialized(value)) {
+                pending.add(value);
+            }
+        }
+        if (!pending.isEmpty()) {
+            inspector.initialize(pending);
+            pending = new ArrayList<Object>();
+        }
+
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            for (ElementPlan.Field field : getPlan(node, value.getClass()).getFields()) {
+                if (field.getNode().containsChilds()) {
+                    Object association = field.getValue(value);
+                    if (association != null && !inspector.isInitialized(association)) {
+                        pending.add(association);
                     }
                 }
-            } else {
-                Entry<Field, Object> entry = field(node.getName(), value.getClass(), value);
-                Object fieldValue = entry.getValue();
+            }
+        }
+        if (!pending.isEmpty()) {
+            inspector.initialize(pending);
+        }
+    }
 
-                if (fieldValue != null || (fieldValue == null && allowNull)) {
-                    jsonNode.putPOJO(entry.getKey().getName(), fieldValue);
+    /**
+     * Values that were not loaded are not walked when skipping them or
+     * writing their identifiers.
+     */
+    private boolean isDeferred(Object value) {
+        return (lazyLoading == LazyLoading.SKIP || lazyLoading == LazyLoading.IDENTIFIER)
+                && !inspector.isInitialized(value);
+    }
+
+    /**
+     * Writes the value as an object with the fields of the node.
+     */
+    protected void serialize(JsonGenerator generator, SerializerProvider provider, NamedTreeNode root, Object value)
+            throws IOException {
+        serialize(generator, provider, getPlan(root, value.getClass()), value);
+    }
+
+    private void serialize(JsonGenerator generator, SerializerProvider provider, ElementPlan plan, Object value)
+            throws IOException {
+        boolean allowNull = mapper.getSerializationConfig().getSerializationInclusion() != JsonSerialize.Inclusion.NON_NULL;
+        generator.writeStartObject();
+        for (ElementPlan.Field field : plan.getFields()) {
+            NamedTreeNode node = field.getNode();
+            Object fieldValue = field.getValue(value);
+
+            boolean container = fieldValue instanceof Collection<?> || fieldValue instanceof Map<?, ?>;
+            if (fieldValue != null && (node.containsChilds() || container) && isDeferred(fieldValue)) {
+                if (lazyLoading == LazyLoading.IDENTIFIER && !container) {
+                    generator.writeFieldName(field.getSerializedName());
+                    provider.defaultSerializeValue(inspector.getIdentifier(fieldValue), generator);
+                }
+            } else if (node.containsChilds()) {
+                Collection<Object> collection = elementsOf(fieldValue);
+                if (collection != null) {
+                    generator.writeFieldName(field.getSerializedName());
+                    serializeCollection(generator, provider, node, collection);
+                } else if (fieldValue instanceof Map<?, ?>) {
+                    generator.writeFieldName(field.getSerializedName());
+                    serializeMap(generator, provider, node, (Map<?, ?>) fieldValue);
+                } else if (fieldValue != null) {
+                    generator.writeFieldName(field.getSerializedName());
+                    serialize(generator, provider, node, fieldValue);
+                } else if (allowNull) {
+                    generator.writeFieldName(field.getSerializedName());
+                    generator.writeNull();
+                }
+            } else {
+                if (fieldValue != null || allowNull) {
+                    generator.writeFieldName(field.getSerializedName());
+                    provider.defaultSerializeValue(fieldValue, generator);
                 }
             }
         }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Plans are resolved once per node of the projection and runtime class.
+     */
+    private ElementPlan getPlan(NamedTreeNode node, Class<?> type) {
+        return getPlan(node, type, metadata);
+    }
+
+    private static ElementPlan getPlan(NamedTreeNode node, Class<?> type, MetadataRegistry metadata) {
+        Map<Class<?>, ElementPlan> plans = node.getPlans();
+        ElementPlan plan = plans.get(type);
+        if (plan == null) {
+            plan = new ElementPlan(node, metadata.getClassMetadata(type));
+            plans.put(type, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Resolves the plans of the default projection of the type and of its
+     * profiles, so the first response of the type does not pay for them.
+     */
+    public static void precompile(Class<?> type) {
+        if (isNonPojo(type)) {
+            return;
+        }
+        JacksonSerializer serializer = new JacksonSerializer(null, null);
+        serializer.initialize(type);
+        precompile(serializer.getTreeFields(), type, MetadataRegistry.getInstance());
+        for (SerializationProfile profile : ProfileRegistry.getInstance().getProfiles(type)) {
+            precompile(profile);
+        }
+    }
+
+    /**
+     * Resolves the plans of the profile for its root type and the declared
+     * types of its associations.
+     */
+    public static void precompile(SerializationProfile profile) {
+        precompile(profile.getTree(), profile.getType(), MetadataRegistry.getInstance());
+    }
+
+    private static void precompile(NamedTreeNode node, Class<?> type, MetadataRegistry metadata) {
+        for (ElementPlan.Field field : getPlan(node, type, metadata).getFields()) {
+            if (field.getNode().containsChilds() && !isNonPojo(field.getElementType())) {
+                precompile(field.getNode(), field.getElementType(), metadata);
+            }
+        }
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    protected Writer getWriter() {
+        return writer;
+    }
+
+    protected NamedTreeNode getTreeFields() {
+        return treeFields;
+    }
+
+    /**
+     * The fields to serialize: the included fields narrowed by the requested
+     * {@link #fields(String) fields}, if any.
+     */
+    protected NamedTreeNode getProjection() {
+        if (projection == null) {
+            if (fields == null) {
+                projection = treeFields;
+            } else if (sharedTree && compiledProfile != null) {
+                projection = withName(SparseFieldsets.getInstance().narrow(compiledProfile, fields));
+            } else {
+                projection = SparseFieldsets.getInstance().narrow(treeFields, fields);
+            }
+        }
+        return projection;
+    }
+
+    private NamedTreeNode withName(NamedTreeNode shared) {
+        return shared.renamed(treeFields.getName());
+    }
+
+    protected Object getObject() {
+        return object;
+    }
+
+    protected Class<?> getRootClass() {
+        return rootClass;
+    }
+
+    protected boolean isRecursive() {
+        return recursive;
     }
 
     public JacksonSerializer withoutRoot() {
@@ -201,69 +474,238 @@ public class JacksonSerializer implements SerializerBuilder {
         return this;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Pretty prints the output of this serializer only, leaving the shared
+     * mapper unchanged.
+     */
+    public JacksonSerializer indented() {
+        this.indented = true;
+        return this;
+    }
+
+    /**
+     * The writer generated at compile time for the root class and profile, used
+     * only when the projection was not changed by includes, excludes,
+     * requested fields or lazy loading.
+     * 
+     * @return the writer or <code>null</code> to walk the object reflectively
+     */
+    protected GeneratedJsonWriter<Object> findGeneratedWriter() {
+        if (customized || fields != null || lazyLoading != LazyLoading.INITIALIZE
+                || mapper.getSerializationConfig().getSerializationInclusion() != JsonSerialize.Inclusion.NON_NULL) {
+            return null;
+        }
+        return GeneratedJsonWriters.find(rootClass, profile);
+    }
+
+    /**
+     * Generated writers do not know about subclasses, so all the elements
+     * must be exactly of the root class.
+     */
+    private GeneratedJsonWriter<Object> generatedWriterFor(Collection<Object> elements) {
+        GeneratedJsonWriter<Object> generated = findGeneratedWriter();
+        if (generated != null) {
+            for (Object element : elements) {
+                if (element != null && element.getClass() != rootClass) {
+                    return null;
+                }
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * Streams the projection straight to the generator, so no tree of nodes
+     * is built.
+     */
     public void serialize() {
-        ObjectNode rootNode = mapper.createObjectNode();
+        write(mapper, writer, indented, new JsonContent() {
+            @Override
+            public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+                serializeRoot(generator, provider);
+            }
+        });
+    }
+
+    /**
+     * Writes the content with one generator and serializer provider, closing
+     * the writer at the end.
+     */
+    static void write(ObjectMapper mapper, Writer writer, boolean indented, JsonContent content) {
+        try {
+            JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(writer);
+            if (indented || mapper.getSerializationConfig().isEnabled(SerializationConfig.Feature.INDENT_OUTPUT)) {
+                generator.useDefaultPrettyPrinter();
+            }
+            mapper.writeValue(generator, content);
+            generator.close();
+        } catch (JsonMappingException e) {
+            if (e.getCause() instanceof ResultException) {
+                throw (ResultException) e.getCause();
+            }
+            throw new ResultException("Unable to generate JSON", e);
+        } catch (IOException e) {
+            throw new ResultException("Unable to generate JSON", e);
+        }
+    }
+
+    void serializeRoot(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        NamedTreeNode treeFields = getProjection();
+        if (object == null) {
+            generator.writeStartObject();
+            if (treeFields.getName() != null) {
+                generator.writeFieldName(treeFields.getName());
+                generator.writeStartObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            return;
+        }
+
         /*
          * This solution was chosen to meet serialization without root
          */
-        Object root = rootNode;
-        if (object != null) {
-            if (recursive) {
-                if (withoutRoot) {
-                	root = mapper.getNodeFactory().POJONode(object);
-                } else {
-                    rootNode.putPOJO(treeFields.getName(), object);
-                }
-            } else if (Collection.class.isAssignableFrom(object.getClass()) && !isNonPojo(rootClass)) {
-                ArrayNode arrayNode;
-                if (withoutRoot) {
-                	arrayNode = mapper.createArrayNode();
-                	root = arrayNode;
-                } else {
-                	arrayNode = rootNode.putArray(treeFields.getName());
+        if (!withoutRoot) {
+            generator.writeStartObject();
+            generator.writeFieldName(treeFields.getName());
+        }
+        Collection<Object> elements = elementsOf(object);
+        if (recursive || isNonPojo(rootClass)) {
+            provider.defaultSerializeValue(object, generator);
+        } else if (elements != null) {
+            GeneratedJsonWriter<Object> generated = generatedWriterFor(elements);
+            if (generated != null) {
+                generator.writeStartArray();
+                for (Object element : elements) {
+                    if (element == null) {
+                        generator.writeNull();
+                    } else {
+                        generated.write(element, generator, provider);
+                    }
                 }
-                
-                Collection<Object> collection = (Collection<Object>) object;
-
-                serializeCollection(arrayNode, treeFields, collection);
-            } else if (!isNonPojo(rootClass)) {
-                ObjectNode dataRoot = (withoutRoot) ? rootNode : rootNode.putObject(treeFields.getName());
-                serialize(dataRoot, treeFields, object);
+                generator.writeEndArray();
             } else {
-                if (withoutRoot) {
-                	root = object;
-                } else {
-                    rootNode.putPOJO(treeFields.getName(), object);
-                }
+                serializeCollection(generator, provider, treeFields, elements);
             }
         } else {
-            if (treeFields.getName() != null) {
-                rootNode.putPOJO(treeFields.getName(), mapper.createObjectNode());
+            GeneratedJsonWriter<Object> generated = generatedWriterFor(Collections.singleton(object));
+            if (generated != null) {
+                generated.write(object, generator, provider);
+            } else {
+                serialize(generator, provider, treeFields, object);
             }
         }
-
-        try {
-            mapper.writeValue(writer, root);
-        } catch (Exception e) {
-            throw new ResultException("Unable to generate JSON", e);
+        if (!withoutRoot) {
+            generator.writeEndObject();
         }
     }
 
+    /**
+     * Excludes the fields, which may be {@link PathPattern patterns} such as
+     * <code>**.password</code>.
+     */
     public Serializer exclude(String... fields) {
+        customized |= fields.length > 0;
         for (String field : fields) {
-            treeFields.removeChild(field);
+            if (PathPattern.isPattern(field)) {
+                editableTree().removeChilds(new PathPattern(field));
+            } else {
+                editableTree().removeChild(field);
+            }
         }
         return this;
     }
 
+    /**
+     * Uses the projection of the named {@link JsonProfile} of the root type
+     * instead of the default one. Must be called before <code>from</code>.
+     */
+    public JacksonSerializer profile(String name) {
+        this.profile = name;
+        return this;
+    }
+
+    /**
+     * Describes the properties this serializer will read, with the includes,
+     * excludes and requested fields applied so far. Can be called before
+     * <code>serialize</code>.
+     */
+    public ProjectionDescriptor describe() {
+        boolean leaf = rootClass == null || isNonPojo(rootClass);
+        return new ProjectionDescriptor(rootClass, leaf ? null : getProjection(), recursive);
+    }
+
+    /**
+     * Uses the inspector to find the lazy-loading proxies and collections that
+     * were not loaded yet, and handles them according to the mode.
+     */
+    public JacksonSerializer lazyLoading(LazyLoading mode, LazinessInspector inspector) {
+        this.lazyLoading = (inspector == null || mode == null) ? LazyLoading.INITIALIZE : mode;
+        this.inspector = inspector;
+        return this;
+    }
+
+    /**
+     * Serializes only the included fields that are in the comma separated list,
+     * such as <code>id,name,products.id</code>. Never adds a field that was
+     * not included.
+     */
+    public JacksonSerializer fields(String fields) {
+        this.fields = SparseFieldsets.normalize(fields);
+        this.projection = null;
+        return this;
+    }
+
+    /**
+     * Includes the fields, which may be {@link PathPattern patterns} such as
+     * <code>customer.*</code>.
+     */
     public Serializer include(String... fields) {
+        customized |= fields.length > 0;
         for (String fieldName : fields) {
-            addField(fieldName);
+            if (PathPattern.isPattern(fieldName)) {
+                if (rootClass != null) {
+                    addFields(new PathPattern(fieldName), rootClass, new ArrayList<String>(), new HashSet<Class<?>>());
+                }
+            } else {
+                addField(fieldName);
+            }
         }
         return this;
     }
 
+    /**
+     * Adds the properties matching the pattern, walking the properties of the
+     * class only while a deeper path may match. A type is not walked again
+     * below itself, so <code>**</code> ends on cyclic graphs.
+     */
+    private void addFields(PathPattern pattern, Class<?> clazz, List<String> path, Set<Class<?>> walking) {
+        walking.add(clazz);
+        for (PropertyMetadata property : metadata.getClassMetadata(clazz).getProperties()) {
+            path.add(property.getName());
+            String[] propertyPath = path.toArray(new String[path.size()]);
+            if (pattern.matches(propertyPath)) {
+                addField(join(path));
+            } else if (!isNonPojo(property.getElementType()) && !walking.contains(property.getElementType())
+                    && pattern.matchesBelow(propertyPath)) {
+                addFields(pattern, property.getElementType(), path, walking);
+            }
+            path.remove(path.size() - 1);
+        }
+        walking.remove(clazz);
+    }
+
+    private static String join(List<String> path) {
+        StringBuilder b = new StringBuilder();
+        for (String p : path) {
+            if (b.length() > 0) {
+                b.append(".");
+            }
+            b.append(p);
+        }
+        return b.toString();
+    }
+
     @Override
     public Serializer recursive() {
         recursive = true;
@@ -278,26 +720,36 @@ public class JacksonSerializer implements SerializerBuilder {
     @Override
     public <T> Serializer from(T object, String alias) {
         this.object = object;
+        this.customized = false;
+        this.projection = null;
 
         if (alias == null && object != null) {
             Class<?> type = getTypeOf(object);
-            String name = getFieldName(type);
-            if (isCollection(object.getClass())) {
-                name = name + "List";
+            String name;
+            if (object.getClass().isArray()) {
+                name = getFieldName(type.isArray() ? type.getComponentType() : type) + "List";
+            } else {
+                name = getFieldName(type);
+                if (isCollection(object.getClass())) {
+                    name = name + "List";
+                }
             }
             treeFields.setName(name);
         } else {
             treeFields.setName(alias);
         }
 
-        if (object != null) {
+        if (object != null && profile != null) {
             rootClass = getTypeOf(object);
-            
-            if (!isNonPojo(rootClass)) {
-                includePrimitiveFields(rootClass, null);
+            SerializationProfile compiled = ProfileRegistry.getInstance().getProfile(rootClass, profile);
+            if (compiled == null) {
+                throw new ResultException("Serialization profile " + profile + " not found. Class: " + rootClass);
             }
+            compiledProfile = compiled;
+            treeFields = withName(compiled.getTree());
+            sharedTree = true;
         } else {
-            rootClass = null;
+            initialize(object != null ? getTypeOf(object) : null);
         }
 
         return this;
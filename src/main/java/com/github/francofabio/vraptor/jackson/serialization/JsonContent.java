@@ -0,0 +1,25 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.JsonSerializableWithType;
+import org.codehaus.jackson.map.SerializerProvider;
+import org.codehaus.jackson.map.TypeSerializer;
+
+/**
+ * Content written by the serializers straight to the generator, with the
+ * serializer provider of the mapper. No type information is ever added.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+abstract class JsonContent implements JsonSerializableWithType {
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSer)
+            throws IOException {
+        serialize(generator, provider);
+    }
+
+}
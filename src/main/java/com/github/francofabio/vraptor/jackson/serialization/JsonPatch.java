@@ -0,0 +1,88 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.Iterator;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+
+/**
+ * Computes RFC 6902 JSON Patch documents. Objects are compared field by field
+ * and arrays index by index, removing or appending the elements past the
+ * shorter one, so a change to a few rows of a large document yields a few
+ * operations.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public final class JsonPatch {
+
+    private JsonPatch() {
+    }
+
+    /**
+     * @return the operations that turn the source into the target
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        diff("", source, target, patch);
+        return patch;
+    }
+
+    private static void diff(String path, JsonNode source, JsonNode target, ArrayNode patch) {
+        if (source.equals(target)) {
+            return;
+        }
+        if (source.isObject() && target.isObject()) {
+            for (Iterator<String> names = source.getFieldNames(); names.hasNext();) {
+                String name = names.next();
+                if (!target.has(name)) {
+                    add(patch, "remove", path + "/" + escape(name), null);
+                }
+            }
+            for (Iterator<String> names = target.getFieldNames(); names.hasNext();) {
+                String name = names.next();
+                String child = path + "/" + escape(name);
+                if (source.has(name)) {
+                    diff(child, source.get(name), target.get(name), patch);
+                } else {
+                    add(patch, "add", child, target.get(name));
+                }
+            }
+        } else if (source.isArray() && target.isArray()) {
+            int common = Math.min(source.size(), target.size());
+            for (int i = 0; i < common; i++) {
+                diff(path + "/" + i, source.get(i), target.get(i), patch);
+            }
+            for (int i = source.size() - 1; i >= common; i--) {
+                add(patch, "remove", path + "/" + i, null);
+            }
+            for (int i = common; i < target.size(); i++) {
+                add(patch, "add", path + "/" + i, target.get(i));
+            }
+        } else {
+            add(patch, "replace", path, target);
+        }
+    }
+
+    private static void add(ArrayNode patch, String op, String path, JsonNode value) {
+        ObjectNode operation = patch.addObject();
+        operation.put("op", op);
+        operation.put("path", path);
+        if (value != null) {
+            operation.put("value", value);
+        }
+    }
+
+    /**
+     * Escapes a field name as a JSON Pointer reference token.
+     */
+    private static String escape(String name) {
+        if (name.indexOf('~') < 0 && name.indexOf('/') < 0) {
+            return name;
+        }
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a named include/exclude projection for a root type, selected with
+ * {@link JacksonSerialization#profile(String)}. Profiles are validated and
+ * compiled once, so invalid paths are reported when they are loaded.
+ * <p>
+ * When placed on the root type itself the <code>type</code> may be omitted.
+ * Profiles declared in the scanned packages, on model types or on resources,
+ * are loaded at startup by the {@link JsonProfileHandler}.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface JsonProfile {
+
+    String name();
+
+    /**
+     * The root type of the projection, defaults to the annotated type.
+     */
+    Class<?> type() default void.class;
+
+    String[] include() default {};
+
+    String[] exclude() default {};
+
+}
@@ -0,0 +1,123 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.servlet.ServletContext;
+
+import org.scannotation.AnnotationDB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.caelum.vraptor.Resource;
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+import br.com.caelum.vraptor.ioc.StereotypeHandler;
+import br.com.caelum.vraptor.scan.ClasspathResolver;
+import br.com.caelum.vraptor.scan.WebBasedClasspathResolver;
+
+/**
+ * Compiles the {@link JsonProfile}s when VRaptor starts, so an invalid profile
+ * fails the startup instead of a request. The profiles of the classes in
+ * <code>WEB-INF/classes</code> and in the base packages, such as the ones
+ * declared on model types, are compiled when the handler is created; the
+ * profiles declared on resources as they are handled.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Component
+@ApplicationScoped
+public class JsonProfileHandler implements StereotypeHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonProfileHandler.class);
+
+    public JsonProfileHandler(ServletContext context) {
+        this(new WebBasedClasspathResolver(context));
+    }
+
+    JsonProfileHandler(ClasspathResolver resolver) {
+        for (Class<?> type : findAnnotatedTypes(resolver)) {
+            handle(type);
+        }
+    }
+
+    @Override
+    public Class<? extends Annotation> stereotype() {
+        return Resource.class;
+    }
+
+    @Override
+    public void handle(Class<?> type) {
+        for (SerializationProfile profile : ProfileRegistry.getInstance().register(type)) {
+            logger.debug("serialization profile compiled: " + profile.getType().getName() + "#" + profile.getName());
+        }
+    }
+
+    /**
+     * Finds the classes annotated with {@link JsonProfile} or
+     * {@link JsonProfiles}, on the class or on its methods. Profiles of classes
+     * that cannot be scanned are still compiled the first time they are used.
+     */
+    static List<Class<?>> findAnnotatedTypes(ClasspathResolver resolver) {
+        AnnotationDB db = new AnnotationDB();
+        db.setScanFieldAnnotations(false);
+        db.setScanParameterAnnotations(false);
+        try {
+            URL classes = resolver.findWebInfClassesLocation();
+            if (classes != null) {
+                db.scanArchives(classes);
+            }
+            for (String basePackage : resolver.findBasePackages()) {
+                if (basePackage.startsWith("br.com.caelum.vraptor")) {
+                    continue;
+                }
+                Enumeration<URL> urls = resolver.getClassLoader().getResources(basePackage.replace('.', '/'));
+                while (urls.hasMoreElements()) {
+                    db.scanArchives(archiveOf(urls.nextElement()));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to scan the serialization profiles, they will be compiled when used", e);
+            return new ArrayList<Class<?>>();
+        }
+
+        Set<String> names = new TreeSet<String>();
+        for (Class<?> annotation : new Class<?>[] { JsonProfile.class, JsonProfiles.class }) {
+            Set<String> annotated = db.getAnnotationIndex().get(annotation.getName());
+            if (annotated != null) {
+                names.addAll(annotated);
+            }
+        }
+
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (String name : names) {
+            try {
+                types.add(Class.forName(name, false, resolver.getClassLoader()));
+            } catch (ClassNotFoundException e) {
+                logger.warn("Unable to load " + name + ", its serialization profiles will be compiled when used");
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Packages in directories are scanned alone; the ones in jars with the
+     * whole jar, which is what scannotation reads. Directories are only read
+     * when their URL ends with a slash.
+     */
+    private static URL archiveOf(URL url) throws IOException {
+        String external = url.toExternalForm();
+        if (external.startsWith("jar:") && external.contains("!/")) {
+            return new URL(external.substring("jar:".length(), external.indexOf("!/")));
+        }
+        return external.endsWith("/") ? url : new URL(external + "/");
+    }
+
+}
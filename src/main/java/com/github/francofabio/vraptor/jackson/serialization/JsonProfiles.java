@@ -0,0 +1,22 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares many {@link JsonProfile}s at the same element.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface JsonProfiles {
+
+    JsonProfile[] value();
+
+}
@@ -0,0 +1,31 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.Collection;
+
+/**
+ * Tells the serializer which values are lazy-loading proxies or collections of
+ * an ORM that were not loaded yet, so they can be handled according to the
+ * {@link LazyLoading} mode instead of being loaded one at a time.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public interface LazinessInspector {
+
+    /**
+     * @return <code>false</code> when the value is a proxy or a collection that
+     *         was not loaded yet
+     */
+    boolean isInitialized(Object value);
+
+    /**
+     * @return the identifier of the proxied entity, read without loading it
+     */
+    Object getIdentifier(Object proxy);
+
+    /**
+     * Loads all the values at once, e.g. with a single query.
+     */
+    void initialize(Collection<Object> values);
+
+}
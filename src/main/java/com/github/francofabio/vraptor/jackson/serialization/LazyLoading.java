@@ -0,0 +1,35 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+/**
+ * How the serializer handles the values that a {@link LazinessInspector}
+ * reports as not loaded.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public enum LazyLoading {
+
+    /**
+     * Values are loaded when their fields are read, one at a time.
+     */
+    INITIALIZE,
+
+    /**
+     * Values that were not loaded are left out.
+     */
+    SKIP,
+
+    /**
+     * Proxies that were not loaded are written as their identifier;
+     * collections that were not loaded are left out.
+     */
+    IDENTIFIER,
+
+    /**
+     * Before the elements of a collection are written, the elements and the
+     * projected associations of all of them that were not loaded are handed
+     * to the inspector in a single call.
+     */
+    BATCH
+
+}
@@ -1,7 +1,11 @@
 package com.github.francofabio.vraptor.jackson.serialization;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implements a simple tree node hierarchical class.
@@ -14,6 +18,12 @@ public class NamedTreeNode {
     private String name;
     private List<NamedTreeNode> childs;
     private NamedTreeNode parent;
+    /*
+     * Kept with the node, so the plans of shared trees, such as the trees of
+     * profiles and of default projections, are resolved once for the
+     * application, and the ones of per-request trees go away with them
+     */
+    private volatile ConcurrentMap<Class<?>, ElementPlan> plans;
 
     public NamedTreeNode() {
         this.childs = new LinkedList<NamedTreeNode>();
@@ -41,6 +51,33 @@ public class NamedTreeNode {
         this.childs = childs;
     }
 
+    /**
+     * A root with another name over the same children and plans, for trees
+     * that are shared and must not be changed.
+     */
+    NamedTreeNode renamed(String name) {
+        NamedTreeNode tree = new NamedTreeNode(name, null);
+        tree.childs = childs;
+        tree.plans = getPlans();
+        return tree;
+    }
+
+    /**
+     * The plans of the elements written with this node, by runtime class.
+     */
+    ConcurrentMap<Class<?>, ElementPlan> getPlans() {
+        ConcurrentMap<Class<?>, ElementPlan> result = plans;
+        if (result == null) {
+            synchronized (this) {
+                if (plans == null) {
+                    plans = new ConcurrentHashMap<Class<?>, ElementPlan>(4);
+                }
+                result = plans;
+            }
+        }
+        return result;
+    }
+
     public NamedTreeNode getParent() {
         return parent;
     }
@@ -104,7 +141,46 @@ public class NamedTreeNode {
         }
     }
 
-    
+    /**
+     * Removes, in a single pass, the descendants whose path matches the
+     * pattern. Nodes left without children by the removal are removed as
+     * well, since a node without children would be serialized as a whole.
+     */
+    public void removeChilds(PathPattern pattern) {
+        removeChilds(pattern, new ArrayList<String>());
+    }
+
+    private void removeChilds(PathPattern pattern, List<String> path) {
+        Iterator<NamedTreeNode> iterator = childs.iterator();
+        while (iterator.hasNext()) {
+            NamedTreeNode child = iterator.next();
+            path.add(child.name);
+            String[] childPath = path.toArray(new String[path.size()]);
+            if (pattern.matches(childPath)) {
+                iterator.remove();
+            } else if (child.containsChilds() && pattern.matchesBelow(childPath)) {
+                child.removeChilds(pattern, path);
+                if (!child.containsChilds()) {
+                    iterator.remove();
+                }
+            }
+            path.remove(path.size() - 1);
+        }
+    }
+
+    /**
+     * Creates a deep copy of this node and its descendants, without parent.
+     */
+    public NamedTreeNode copy() {
+        NamedTreeNode copy = new NamedTreeNode(name, null);
+        for (NamedTreeNode child : childs) {
+            NamedTreeNode childCopy = child.copy();
+            childCopy.parent = copy;
+            copy.childs.add(childCopy);
+        }
+        return copy;
+    }
+
     public boolean containsChild(String name) {
         return (childs.indexOf(new NamedTreeNode(name, null)) > -1);
     }
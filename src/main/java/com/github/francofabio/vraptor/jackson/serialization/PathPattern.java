@@ -0,0 +1,83 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+/**
+ * A compiled glob over dotted field paths. <code>*</code> matches exactly one
+ * field and <code>**</code> matches any number of fields, so
+ * <code>*.version</code> matches <code>customer.version</code> and
+ * <code>**.password</code> matches <code>password</code> at any depth.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class PathPattern {
+
+    private static final String ANY = "*";
+    private static final String ANY_DEPTH = "**";
+
+    private final String pattern;
+    private final String[] segments;
+
+    public PathPattern(String pattern) {
+        this.pattern = pattern;
+        this.segments = pattern.split("\\.");
+        for (String segment : segments) {
+            if (segment.length() == 0 || (segment.contains(ANY) && !ANY.equals(segment) && !ANY_DEPTH.equals(segment))) {
+                throw new ResultException("Invalid field pattern: " + pattern);
+            }
+        }
+    }
+
+    public static boolean isPattern(String path) {
+        return path.contains(ANY);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean matches(String[] path) {
+        return matches(0, path, 0);
+    }
+
+    /**
+     * Tells whether a path below the given one may match, used to stop
+     * walking branches that can never match.
+     */
+    public boolean matchesBelow(String[] path) {
+        return matchesBelow(0, path, 0);
+    }
+
+    private boolean matches(int s, String[] path, int p) {
+        if (s == segments.length) {
+            return p == path.length;
+        }
+        if (ANY_DEPTH.equals(segments[s])) {
+            return matches(s + 1, path, p) || (p < path.length && matches(s, path, p + 1));
+        }
+        if (p == path.length) {
+            return false;
+        }
+        return (ANY.equals(segments[s]) || segments[s].equals(path[p])) && matches(s + 1, path, p + 1);
+    }
+
+    private boolean matchesBelow(int s, String[] path, int p) {
+        if (p == path.length) {
+            return s < segments.length;
+        }
+        if (s == segments.length) {
+            return false;
+        }
+        if (ANY_DEPTH.equals(segments[s])) {
+            return matchesBelow(s + 1, path, p) || matchesBelow(s, path, p + 1);
+        }
+        return (ANY.equals(segments[s]) || segments[s].equals(path[p])) && matchesBelow(s + 1, path, p + 1);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+}
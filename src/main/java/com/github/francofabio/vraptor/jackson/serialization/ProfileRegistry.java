@@ -0,0 +1,163 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.caelum.vraptor.view.ResultException;
+
+import com.github.francofabio.vraptor.jackson.metadata.MetadataRegistry;
+
+/**
+ * Application wide registry of compiled {@link JsonProfile}s, by root type and
+ * name. The {@link JsonProfileHandler} registers the profiles found at
+ * startup; profiles declared on a root type outside the scanned packages are
+ * loaded the first time the type is looked up.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class ProfileRegistry {
+
+    private static final ProfileRegistry INSTANCE = new ProfileRegistry(MetadataRegistry.getInstance());
+
+    private final MetadataRegistry metadata;
+    private final ConcurrentMap<Class<?>, Map<String, SerializationProfile>> profiles;
+    private final Set<Class<?>> scanned;
+    private final Map<Class<?>, List<SerializationProfile>> declared;
+
+    public ProfileRegistry(MetadataRegistry metadata) {
+        this.metadata = metadata;
+        this.profiles = new ConcurrentHashMap<Class<?>, Map<String, SerializationProfile>>();
+        this.scanned = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+        this.declared = new ConcurrentHashMap<Class<?>, List<SerializationProfile>>();
+    }
+
+    public static ProfileRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Compiles the profiles declared on the class and on its methods.
+     * 
+     * @return the compiled profiles
+     * @throws ResultException when a profile is invalid
+     */
+    public synchronized List<SerializationProfile> register(Class<?> annotated) {
+        List<SerializationProfile> compiled = new ArrayList<SerializationProfile>();
+        if (!scanned.contains(annotated)) {
+            compileAll(annotated, annotated, compiled);
+            for (Method method : annotated.getDeclaredMethods()) {
+                compileAll(method, null, compiled);
+            }
+            declared.put(annotated, Collections.unmodifiableList(compiled));
+            scanned.add(annotated);
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the profiles declared on the class and on its methods, compiled
+     *         if they were not yet
+     */
+    public List<SerializationProfile> getDeclaredProfiles(Class<?> annotated) {
+        if (!scanned.contains(annotated)) {
+            register(annotated);
+        }
+        return declared.get(annotated);
+    }
+
+    /**
+     * @return the profiles whose root type is the type, wherever they were
+     *         declared
+     */
+    public List<SerializationProfile> getProfiles(Class<?> type) {
+        if (!scanned.contains(type)) {
+            register(type);
+        }
+        Map<String, SerializationProfile> byName = profiles.get(type);
+        if (byName == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<SerializationProfile>(byName.values());
+    }
+
+    /**
+     * Finds the profile for the type, or for its closest superclass that has a
+     * profile with this name.
+     * 
+     * @return the profile or <code>null</code> when not found
+     */
+    public SerializationProfile getProfile(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && !Object.class.equals(current); current = current.getSuperclass()) {
+            if (!scanned.contains(current)) {
+                register(current);
+            }
+            Map<String, SerializationProfile> byName = profiles.get(current);
+            if (byName != null && byName.containsKey(name)) {
+                return byName.get(name);
+            }
+        }
+        return null;
+    }
+
+    private void compileAll(AnnotatedElement element, Class<?> defaultType, List<SerializationProfile> compiled) {
+        JsonProfile profile = element.getAnnotation(JsonProfile.class);
+        if (profile != null) {
+            compiled.add(compile(profile, element, defaultType));
+        }
+        JsonProfiles profiles = element.getAnnotation(JsonProfiles.class);
+        if (profiles != null) {
+            for (JsonProfile p : profiles.value()) {
+                compiled.add(compile(p, element, defaultType));
+            }
+        }
+    }
+
+    private SerializationProfile compile(JsonProfile annotation, AnnotatedElement element, Class<?> defaultType) {
+        Class<?> type = void.class.equals(annotation.type()) ? defaultType : annotation.type();
+        if (type == null) {
+            throw new ResultException("Serialization profile " + annotation.name() + " must declare its type: " + element);
+        }
+
+        JacksonSerializer builder = new JacksonSerializer(null, null, metadata);
+        try {
+            builder.initialize(type);
+            builder.include(annotation.include());
+            for (String exclude : annotation.exclude()) {
+                if (!PathPattern.isPattern(exclude)) {
+                    builder.checkField(exclude);
+                }
+            }
+            builder.exclude(annotation.exclude());
+        } catch (ResultException e) {
+            throw new ResultException("Invalid serialization profile " + annotation.name() + " declared at " + element, e);
+        }
+
+        SerializationProfile profile = new SerializationProfile(annotation.name(), type, annotation.include(),
+                annotation.exclude(), builder.getTreeFields());
+        add(profile, element);
+        return profile;
+    }
+
+    private void add(SerializationProfile profile, AnnotatedElement element) {
+        Map<String, SerializationProfile> byName = profiles.get(profile.getType());
+        if (byName == null) {
+            byName = new ConcurrentHashMap<String, SerializationProfile>();
+            profiles.put(profile.getType(), byName);
+        }
+        SerializationProfile previous = byName.get(profile.getName());
+        if (previous != null && !previous.isSameDefinition(profile)) {
+            throw new ResultException("Duplicated serialization profile " + profile.getName() + " for " + profile.getType()
+                    + " declared at " + element);
+        }
+        byName.put(profile.getName(), profile);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of the properties a serialization will read: the
+ * root type, the paths of the values written as a whole (leaves) and the paths
+ * of the associations walked to reach them. Data access code may use it to
+ * build narrow queries or fetch plans.
+ * <p>
+ * Obtained from {@link JacksonSerializer#describe()},
+ * {@link SerializationProfile#getDescriptor()} or
+ * {@link #of(Class, String[], String[])}.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public final class ProjectionDescriptor {
+
+    private final Class<?> rootType;
+    private final List<String> leafPaths;
+    private final List<String> associationPaths;
+    private final boolean recursive;
+
+    ProjectionDescriptor(Class<?> rootType, NamedTreeNode tree, boolean recursive) {
+        List<String> leaves = new ArrayList<String>();
+        List<String> associations = new ArrayList<String>();
+        if (tree != null && !recursive) {
+            collect(tree, null, leaves, associations);
+        }
+        this.rootType = rootType;
+        this.leafPaths = Collections.unmodifiableList(leaves);
+        this.associationPaths = Collections.unmodifiableList(associations);
+        this.recursive = recursive;
+    }
+
+    /**
+     * Describes the default projection of the type with the given includes and
+     * excludes, which may be {@link PathPattern patterns}, without an object to
+     * serialize.
+     */
+    public static ProjectionDescriptor of(Class<?> type, String[] include, String[] exclude) {
+        JacksonSerializer builder = new JacksonSerializer(null, null);
+        builder.initialize(type);
+        builder.include(include);
+        builder.exclude(exclude);
+        return builder.describe();
+    }
+
+    private static void collect(NamedTreeNode node, String path, List<String> leaves, List<String> associations) {
+        for (NamedTreeNode child : node.getChilds()) {
+            String childPath = (path != null) ? path + "." + child.getName() : child.getName();
+            if (child.containsChilds()) {
+                associations.add(childPath);
+                collect(child, childPath, leaves, associations);
+            } else {
+                leaves.add(childPath);
+            }
+        }
+    }
+
+    /**
+     * @return the type of the serialized object, or of the elements of a
+     *         serialized collection
+     */
+    public Class<?> getRootType() {
+        return rootType;
+    }
+
+    /**
+     * @return the dotted paths of the values written as a whole
+     */
+    public List<String> getLeafPaths() {
+        return leafPaths;
+    }
+
+    /**
+     * @return the dotted paths of the associations walked to reach the leaves,
+     *         parents first
+     */
+    public List<String> getAssociationPaths() {
+        return associationPaths;
+    }
+
+    /**
+     * @return <code>true</code> when the whole object graph is serialized, so
+     *         no path is listed
+     */
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    public boolean contains(String path) {
+        return leafPaths.contains(path) || associationPaths.contains(path);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[" + (rootType != null ? rootType.getName() : null) + ", leaves="
+                + leafPaths + ", associations=" + associationPaths + (recursive ? ", recursive" : "") + "]";
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.Arrays;
+
+/**
+ * A compiled {@link JsonProfile}: the tree of fields to serialize for the root
+ * type. The tree is shared and must not be changed.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class SerializationProfile {
+
+    private final String name;
+    private final Class<?> type;
+    private final String[] includes;
+    private final String[] excludes;
+    private final NamedTreeNode tree;
+    private final ProjectionDescriptor descriptor;
+
+    SerializationProfile(String name, Class<?> type, String[] includes, String[] excludes, NamedTreeNode tree) {
+        this.name = name;
+        this.type = type;
+        this.includes = includes.clone();
+        this.excludes = excludes.clone();
+        this.tree = tree;
+        this.descriptor = new ProjectionDescriptor(type, tree, false);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public String[] getIncludes() {
+        return includes.clone();
+    }
+
+    public String[] getExcludes() {
+        return excludes.clone();
+    }
+
+    public ProjectionDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    NamedTreeNode getTree() {
+        return tree;
+    }
+
+    boolean isSameDefinition(SerializationProfile other) {
+        return type.equals(other.type) && Arrays.equals(includes, other.includes)
+                && Arrays.equals(excludes, other.excludes);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[" + type.getName() + "#" + name + "]";
+    }
+
+}
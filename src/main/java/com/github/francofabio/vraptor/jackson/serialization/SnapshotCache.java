@@ -0,0 +1,70 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the recently serialized bodies of resources by version, so a delta
+ * can be computed against the version a client holds. The cache is bounded by
+ * the memory taken by the bodies, evicting the least recently used first.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class SnapshotCache {
+
+    public static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+    private static final SnapshotCache INSTANCE = new SnapshotCache(DEFAULT_BUDGET);
+
+    private final long budget;
+    private final LinkedHashMap<List<String>, String> snapshots;
+    private long used;
+
+    /**
+     * @param budget the memory, in bytes, the bodies may take
+     */
+    public SnapshotCache(long budget) {
+        this.budget = budget;
+        this.snapshots = new LinkedHashMap<List<String>, String>(16, 0.75f, true);
+    }
+
+    public static SnapshotCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the body or <code>null</code> when it was evicted or never kept
+     */
+    public synchronized String get(String resource, String version) {
+        return snapshots.get(Arrays.asList(resource, version));
+    }
+
+    /**
+     * Keeps the body, unless it alone is larger than the budget.
+     */
+    public synchronized void put(String resource, String version, String body) {
+        long size = sizeOf(body);
+        if (size > budget) {
+            return;
+        }
+        String previous = snapshots.put(Arrays.asList(resource, version), body);
+        used += size - (previous != null ? sizeOf(previous) : 0);
+        for (Iterator<String> eldest = snapshots.values().iterator(); used > budget && eldest.hasNext();) {
+            used -= sizeOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    private static long sizeOf(String body) {
+        return 2L * body.length();
+    }
+
+}
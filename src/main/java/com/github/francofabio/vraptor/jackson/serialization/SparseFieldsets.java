@@ -0,0 +1,125 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Narrows a projection to the fields requested by the client, such as
+ * <code>id,name,products.id</code>. A requested path that ends on an object
+ * keeps all of its projected fields. Fields that are not in the projection are
+ * ignored, so the result is never wider than the projection.
+ * <p>
+ * The requested trees, and the narrowed trees of profiles, are kept in a
+ * bounded LRU cache keyed by the normalized field list.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class SparseFieldsets {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final SparseFieldsets INSTANCE = new SparseFieldsets(DEFAULT_CAPACITY);
+
+    private final Map<Object, NamedTreeNode> cache;
+
+    public SparseFieldsets(final int capacity) {
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<Object, NamedTreeNode>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, NamedTreeNode> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    public static SparseFieldsets getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorts the list and removes blanks and duplicates.
+     *
+     * @return the normalized list or <code>null</code> when there is no field
+     */
+    public static String normalize(String fields) {
+        if (fields == null) {
+            return null;
+        }
+        TreeSet<String> names = new TreeSet<String>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.length() > 0) {
+                names.add(name);
+            }
+        }
+        if (names.isEmpty()) {
+            return null;
+        }
+        StringBuilder b = new StringBuilder();
+        for (String name : names) {
+            b.append(name).append(",");
+        }
+        return b.substring(0, b.length() - 1);
+    }
+
+    /**
+     * Narrows the children of the projection to the normalized fields.
+     */
+    public NamedTreeNode narrow(NamedTreeNode projection, String fields) {
+        NamedTreeNode narrowed = new NamedTreeNode(projection.getName(), null);
+        intersect(projection, getRequested(fields), narrowed);
+        return narrowed;
+    }
+
+    /**
+     * Narrows the tree of the profile, reusing the result of previous requests
+     * with the same fields. The returned tree is shared and must not be changed.
+     */
+    NamedTreeNode narrow(SerializationProfile profile, String fields) {
+        Object key = Arrays.<Object> asList(profile, fields);
+        NamedTreeNode narrowed = cache.get(key);
+        if (narrowed == null) {
+            narrowed = narrow(profile.getTree(), fields);
+            cache.put(key, narrowed);
+        }
+        return narrowed;
+    }
+
+    NamedTreeNode getRequested(String fields) {
+        NamedTreeNode requested = cache.get(fields);
+        if (requested == null) {
+            requested = new NamedTreeNode(null, null);
+            for (String field : fields.split(",")) {
+                requested.addChild(field);
+            }
+            cache.put(fields, requested);
+        }
+        return requested;
+    }
+
+    private void intersect(NamedTreeNode projection, NamedTreeNode requested, NamedTreeNode result) {
+        for (NamedTreeNode child : projection.getChilds()) {
+            NamedTreeNode requestedChild = requested.getChild(child.getName());
+            if (requestedChild == null) {
+                continue;
+            }
+            if (!requestedChild.containsChilds() || !child.containsChilds()) {
+                NamedTreeNode copy = child.copy();
+                copy.setParent(result);
+                result.getChilds().add(copy);
+            } else {
+                NamedTreeNode narrowed = new NamedTreeNode(child.getName(), result);
+                intersect(child, requestedChild, narrowed);
+                if (narrowed.containsChilds()) {
+                    result.getChilds().add(narrowed);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * Buffers a complete body, keeping the first bytes on the heap and spilling
+ * the whole content to a temporary file once it grows past the threshold, so
+ * the heap used by a response is capped whatever its size. The SHA-1 of the
+ * content is computed as it is written.
+ * <p>
+ * Once closed the content is written with {@link #writeTo(OutputStream)}, and
+ * {@link #dispose()} must be called in a <code>finally</code> block to delete
+ * the temporary file.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class SpillingOutputStream extends OutputStream {
+
+    public static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+    private final int threshold;
+    private final File directory;
+    private final MessageDigest digest;
+    private ByteArrayOutputStream memory;
+    private OutputStream output;
+    private File file;
+    private long length;
+    private String hash;
+
+    public SpillingOutputStream() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public SpillingOutputStream(int threshold) {
+        this(threshold, null);
+    }
+
+    /**
+     * @param directory where the temporary file is created, or
+     *            <code>null</code> for the default temporary directory
+     */
+    public SpillingOutputStream(int threshold, File directory) {
+        this.threshold = threshold;
+        this.directory = directory;
+        this.digest = Digests.newSha1();
+        this.memory = new ByteArrayOutputStream(Math.min(threshold, 8192));
+        this.output = memory;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (hash != null) {
+            throw new IOException("Stream closed");
+        }
+        if (file == null && length + len > threshold) {
+            spill();
+        }
+        output.write(b, off, len);
+        digest.update(b, off, len);
+        length += len;
+    }
+
+    private void spill() throws IOException {
+        file = File.createTempFile("vraptor-jackson", ".json", directory);
+        output = new BufferedOutputStream(new FileOutputStream(file));
+        memory.writeTo(output);
+        memory = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Finishes the content, which can then be written. Closing again has no
+     * effect.
+     */
+    @Override
+    public void close() throws IOException {
+        if (hash == null) {
+            hash = Digests.hex(digest.digest());
+            output.close();
+        }
+    }
+
+    /**
+     * Writes the content to the output, transferring it from the file channel
+     * when it was spilled.
+     */
+    public void writeTo(OutputStream target) throws IOException {
+        if (hash == null) {
+            throw new IllegalStateException("The content is still being written");
+        }
+        if (file == null) {
+            memory.writeTo(target);
+            return;
+        }
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            WritableByteChannel channelTarget = Channels.newChannel(target);
+            for (long position = 0; position < length;) {
+                position += channel.transferTo(position, length - position, channelTarget);
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Closes the stream, deletes the temporary file and releases the memory.
+     * Disposing again has no effect.
+     */
+    public void dispose() {
+        try {
+            close();
+        } catch (IOException e) {
+            // the content is discarded anyway
+        }
+        memory = null;
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return the hex encoded SHA-1 of the content, once closed
+     */
+    public String getDigest() {
+        return hash;
+    }
+
+    /**
+     * @return whether the content is still held on the heap
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * @return the temporary file, or <code>null</code> while in memory
+     */
+    File getFile() {
+        return file;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.github.francofabio.vraptor.jackson.serialization;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+
+import org.codehaus.jackson.Base64Variant;
+import org.codehaus.jackson.Base64Variants;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.JsonMappingException;
+import org.codehaus.jackson.map.JsonSerializer;
+import org.codehaus.jackson.map.SerializerProvider;
+
+/**
+ * Writes {@link InputStream}, {@link Base64File} and {@link Blob} values as base64
+ * strings, encoding the content in fixed-size chunks straight into the output,
+ * so it is never loaded into memory as a whole. The stream is closed once it
+ * has been written.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class StreamingBinarySerializer extends JsonSerializer<Object> {
+
+    private static final int CHUNK_SIZE = 3 * 4096;
+
+    @Override
+    public void serialize(Object value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+        InputStream input = openStream(value);
+        try {
+            writeBase64(input, jgen, Base64Variants.getDefaultVariant());
+        } finally {
+            input.close();
+        }
+    }
+
+    private InputStream openStream(Object value) throws IOException {
+        if (value instanceof Base64File) {
+            return new FileInputStream(((Base64File) value).getFile());
+        }
+        if (value instanceof Blob) {
+            try {
+                return ((Blob) value).getBinaryStream();
+            } catch (SQLException e) {
+                throw new JsonMappingException("Unable to read blob content", e);
+            }
+        }
+        return (InputStream) value;
+    }
+
+    private void writeBase64(InputStream input, JsonGenerator jgen, Base64Variant variant) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        char[] encoded = new char[(CHUNK_SIZE / 3) * 6];
+        int chunksBeforeLF = variant.getMaxLineLength() >> 2;
+
+        /*
+         * The opening quote goes through writeRawValue so the generator still
+         * writes separators and indentation, the content itself needs no escaping
+         */
+        jgen.writeRawValue("\"");
+
+        int length;
+        while ((length = fill(input, buffer)) > 0) {
+            int ptr = 0;
+            int offset = 0;
+            int fullChunks = length - 3;
+            while (offset <= fullChunks) {
+                int b24 = ((buffer[offset++] & 0xFF) << 16) | ((buffer[offset++] & 0xFF) << 8) | (buffer[offset++] & 0xFF);
+                ptr = variant.encodeBase64Chunk(b24, encoded, ptr);
+                if (--chunksBeforeLF <= 0) {
+                    encoded[ptr++] = '\\';
+                    encoded[ptr++] = 'n';
+                    chunksBeforeLF = variant.getMaxLineLength() >> 2;
+                }
+            }
+            int remaining = length - offset;
+            if (remaining > 0) {
+                int b24 = (buffer[offset++] & 0xFF) << 16;
+                if (remaining == 2) {
+                    b24 |= (buffer[offset++] & 0xFF) << 8;
+                }
+                ptr = variant.encodeBase64Partial(b24, remaining, encoded, ptr);
+            }
+            jgen.writeRaw(encoded, 0, ptr);
+        }
+
+        jgen.writeRaw('"');
+    }
+
+    /**
+     * Reads until the buffer is full, so only the last chunk can end with a
+     * partial group of bytes.
+     */
+    private static int fill(InputStream input, byte[] buffer) throws IOException {
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = input.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.github.francofabio.vraptor.jackson.warmup;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.ServletContext;
+
+import org.codehaus.jackson.type.JavaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.caelum.vraptor.Consumes;
+import br.com.caelum.vraptor.Resource;
+import br.com.caelum.vraptor.http.ParameterNameProvider;
+import br.com.caelum.vraptor.ioc.ApplicationScoped;
+import br.com.caelum.vraptor.ioc.Component;
+import br.com.caelum.vraptor.ioc.StereotypeHandler;
+import br.com.caelum.vraptor.resource.DefaultResourceClass;
+import br.com.caelum.vraptor.resource.DefaultResourceMethod;
+import br.com.caelum.vraptor.resource.ResourceMethod;
+
+import com.github.francofabio.vraptor.jackson.deserialization.BindingPlan;
+import com.github.francofabio.vraptor.jackson.deserialization.JacksonDeserialization;
+import com.github.francofabio.vraptor.jackson.serialization.JacksonSerializer;
+import com.github.francofabio.vraptor.jackson.serialization.ProfileRegistry;
+import com.github.francofabio.vraptor.jackson.serialization.SerializationProfile;
+
+/**
+ * Optional warm-up of the resources found by VRaptor at startup. The binding
+ * plans of every resource method that consumes JSON, the serialization plans
+ * of the types they bind and the profiles declared on the resources are
+ * compiled ahead of the first request, sequentially or in parallel.
+ * <p>
+ * Enabled by the <code>vraptor.jackson.warmup</code> context parameter; the
+ * number of threads is set by <code>vraptor.jackson.warmup.threads</code>.
+ * The threads are stopped when the application is undeployed.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+@Component
+@ApplicationScoped
+public class JacksonWarmUp implements StereotypeHandler {
+
+    public static final String ENABLED_PARAMETER = "vraptor.jackson.warmup";
+    public static final String THREADS_PARAMETER = "vraptor.jackson.warmup.threads";
+
+    private static final Logger logger = LoggerFactory.getLogger(JacksonWarmUp.class);
+    private static final List<String> JSON_TYPES = Arrays.asList("application/json", "json", "application/x-ndjson",
+            "ndjson");
+
+    private final JacksonDeserialization deserialization;
+    private final boolean enabled;
+    private final ExecutorService executor;
+
+    public JacksonWarmUp(ParameterNameProvider paramNameProvider, ServletContext context) {
+        this.deserialization = new JacksonDeserialization(paramNameProvider);
+        this.enabled = Boolean.parseBoolean(context.getInitParameter(ENABLED_PARAMETER));
+        this.executor = enabled ? createExecutor(context.getInitParameter(THREADS_PARAMETER)) : null;
+    }
+
+    private static ExecutorService createExecutor(String threads) {
+        int count = (threads == null) ? 1 : Integer.parseInt(threads.trim());
+        if (count <= 1) {
+            return null;
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(count, count, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "vraptor-jackson-warmup");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Stops the warm-up threads, dropping the tasks not started yet, so they
+     * do not outlive the application.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public Class<? extends Annotation> stereotype() {
+        return Resource.class;
+    }
+
+    @Override
+    public void handle(Class<?> type) {
+        if (!enabled) {
+            return;
+        }
+
+        for (final SerializationProfile profile : ProfileRegistry.getInstance().getDeclaredProfiles(type)) {
+            run(type.getSimpleName() + " profile " + profile.getName(), new Runnable() {
+                @Override
+                public void run() {
+                    JacksonSerializer.precompile(profile);
+                }
+            });
+        }
+
+        DefaultResourceClass resource = new DefaultResourceClass(type);
+        for (Method method : type.getMethods()) {
+            if (consumesJson(method)) {
+                final ResourceMethod resourceMethod = new DefaultResourceMethod(resource, method);
+                run(type.getSimpleName() + "." + method.getName(), new Runnable() {
+                    @Override
+                    public void run() {
+                        BindingPlan plan = deserialization.precompile(resourceMethod);
+                        for (int i = 0; i < plan.getParameterCount(); i++) {
+                            JacksonSerializer.precompile(boundType(plan, i));
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * The type of the objects bound to the parameter, which are usually
+     * written back in the responses of the resource.
+     */
+    private Class<?> boundType(BindingPlan plan, int index) {
+        JavaType type = plan.getType(index);
+        if (type.isArrayType()) {
+            return type.getContentType().getRawClass();
+        }
+        if (Iterable.class.isAssignableFrom(type.getRawClass()) || Iterator.class.isAssignableFrom(type.getRawClass())) {
+            return plan.getElementType(index).getRawClass();
+        }
+        return type.getRawClass();
+    }
+
+    private boolean consumesJson(Method method) {
+        Consumes consumes = method.getAnnotation(Consumes.class);
+        if (consumes == null || method.getParameterTypes().length == 0) {
+            return false;
+        }
+        if (consumes.value().length == 0) {
+            return true;
+        }
+        for (String value : consumes.value()) {
+            if (JSON_TYPES.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void run(final String name, final Runnable task) {
+        Runnable timed = new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                    logger.info("warmed up " + name + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                            + " ms");
+                } catch (RuntimeException e) {
+                    logger.warn("unable to warm up " + name, e);
+                }
+            }
+        };
+
+        if (executor == null) {
+            timed.run();
+        } else {
+            executor.execute(timed);
+        }
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.github.francofabio.vraptor.jackson;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.caelum.vraptor.http.ParameterNameProvider;
+import br.com.caelum.vraptor.resource.DefaultResourceClass;
+import br.com.caelum.vraptor.resource.DefaultResourceMethod;
+import br.com.caelum.vraptor.resource.ResourceMethod;
+
+import com.github.francofabio.vraptor.jackson.deserialization.JacksonDeserialization;
+import com.github.francofabio.vraptor.jackson.model.Address;
+import com.github.francofabio.vraptor.jackson.model.Customer;
+import com.github.francofabio.vraptor.jackson.model.Group;
+import com.github.francofabio.vraptor.jackson.model.Order;
+import com.github.francofabio.vraptor.jackson.model.Product;
+import com.github.francofabio.vraptor.jackson.serialization.JacksonSerialization;
+
+/**
+ * Serializes and deserializes the test models from many threads at once,
+ * mixing indented output, profiles and dates, and compares every result
+ * byte for byte with the single-threaded one. Also reports how the
+ * throughput scales as threads are added.
+ * <p>
+ * Tuned with the <code>stress.threads</code> and
+ * <code>stress.iterations</code> system properties. Setting
+ * <code>stress.scaling</code> to the minimal speedup expected with all the
+ * threads makes the scaling test fail below it.
+ *
+ * @author francofabio
+ * @version 1.0
+ */
+public class ConcurrencyStressTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyStressTest.class);
+
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+    private static final int THREADS = Integer.getInteger("stress.threads", Math.max(4, 2 * CPUS));
+    private static final int ITERATIONS = Integer.getInteger("stress.iterations", 100);
+
+    private List<Scenario> scenarios;
+    private List<String> expected;
+
+    interface Scenario {
+        String run() throws Exception;
+    }
+
+    static class OrderController {
+
+        public void add(Order order) {}
+
+    }
+
+    @Before
+    public void setup() throws Exception {
+        final Order order = createOrder();
+        final List<Product> products = createProducts(40);
+        final String body = orderBody(products);
+        final ResourceMethod add = new DefaultResourceMethod(new DefaultResourceClass(OrderController.class),
+                OrderController.class.getDeclaredMethod("add", Order.class));
+        final JacksonDeserialization deserialization = new JacksonDeserialization(new ParameterNameProvider() {
+            public String[] parameterNamesFor(AccessibleObject method) {
+                return new String[] { "order" };
+            }
+        });
+
+        scenarios = new ArrayList<Scenario>();
+        scenarios.add(new Scenario() {
+            public String run() {
+                StringWriter output = new StringWriter();
+                new JacksonSerialization(responseWriting(output)).from(order).include("customer", "products")
+                        .serialize();
+                return output.toString();
+            }
+        });
+        scenarios.add(new Scenario() {
+            public String run() {
+                StringWriter output = new StringWriter();
+                new JacksonSerialization(responseWriting(output)).indented().from(order)
+                        .include("customer", "customer.address", "products", "products.group").serialize();
+                return output.toString();
+            }
+        });
+        scenarios.add(new Scenario() {
+            public String run() {
+                StringWriter output = new StringWriter();
+                new JacksonSerialization(responseWriting(output)).profile("summary").from(order).serialize();
+                return output.toString();
+            }
+        });
+        scenarios.add(new Scenario() {
+            public String run() {
+                StringWriter output = new StringWriter();
+                new JacksonSerialization(responseWriting(output)).withoutRoot().from(products).include("group")
+                        .serialize();
+                return output.toString();
+            }
+        });
+        scenarios.add(new Scenario() {
+            public String run() {
+                Object[] deserialized = deserialization.deserialize(new ByteArrayInputStream(body.getBytes()), add);
+                StringWriter output = new StringWriter();
+                new JacksonSerialization(responseWriting(output)).from(deserialized[0]).include("products")
+                        .serialize();
+                return output.toString();
+            }
+        });
+
+        expected = new ArrayList<String>();
+        for (Scenario scenario : scenarios) {
+            expected.add(scenario.run());
+        }
+    }
+
+    /*
+     * A mock would record the calls of every thread; only the writer is used
+     */
+    private static HttpServletResponse responseWriting(StringWriter output) {
+        final PrintWriter writer = new PrintWriter(output);
+        return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getWriter".equals(method.getName()) ? writer : null;
+                    }
+                });
+    }
+
+    private Order createOrder() {
+        Order order = new Order(1L, new Customer(1L, "Customer 1", new Address("Street 1", "City 1", "00000-000")));
+        order.setProducts(createProducts(10));
+        return order;
+    }
+
+    /*
+     * Spread over years, so the dates miss the caches of the date codecs
+     */
+    private List<Product> createProducts(int size) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2010, Calendar.JANUARY, 1);
+        List<Product> products = new ArrayList<Product>();
+        for (long id = 1; id <= size; id++) {
+            calendar.add(Calendar.DAY_OF_MONTH, 37);
+            Date date = calendar.getTime();
+            products.add(new Product(id, "Product " + id, date, new Group(id % 4, "Group " + (id % 4))));
+        }
+        return products;
+    }
+
+    private String orderBody(List<Product> products) {
+        StringWriter output = new StringWriter();
+        Order order = new Order();
+        order.setId(2L);
+        order.setProducts(products);
+        new JacksonSerialization(responseWriting(output)).from(order).include("products").serialize();
+        return output.toString();
+    }
+
+    /**
+     * Runs every scenario the given times on each thread, released together
+     * and each starting at a different scenario.
+     *
+     * @return the nanoseconds taken by all the threads
+     */
+    private long runConcurrently(int threads, final int iterations, final Queue<String> failures)
+            throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final int offset = i;
+            new Thread("stress-" + i) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int iteration = 0; iteration < iterations; iteration++) {
+                            for (int s = 0; s < scenarios.size(); s++) {
+                                int index = (offset + s) % scenarios.size();
+                                String result = scenarios.get(index).run();
+                                if (!expected.get(index).equals(result)) {
+                                    failures.add("scenario " + index + " wrote " + result);
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.add(e.toString());
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+
+    @Test
+    public void shouldWriteTheSameBytesFromManyThreads() throws InterruptedException {
+        Queue<String> failures = new ConcurrentLinkedQueue<String>();
+        runConcurrently(THREADS, ITERATIONS, failures);
+
+        assertTrue(failures.size() + " failures, first: " + failures.peek(), failures.isEmpty());
+    }
+
+    @Test
+    public void shouldScaleAsThreadsAreAdded() throws InterruptedException {
+        Queue<String> failures = new ConcurrentLinkedQueue<String>();
+        runConcurrently(CPUS, ITERATIONS / 4 + 1, failures);
+
+        double single = 0;
+        double speedup = 0;
+        int measured = 1;
+        for (int threads = 1; threads <= THREADS; threads *= 2) {
+            long elapsed = runConcurrently(threads, ITERATIONS, failures);
+            double throughput = threads * ITERATIONS * scenarios.size() * 1e9 / elapsed;
+            if (threads == 1) {
+                single = throughput;
+            }
+            if (threads <= CPUS) {
+                speedup = throughput / single;
+                measured = threads;
+            }
+            logger.info(threads + " threads: " + Math.round(throughput) + " ops/s, speedup "
+                    + Math.round(throughput / single * 100) / 100.0);
+        }
+        assertTrue(failures.size() + " failures, first: " + failures.peek(), failures.isEmpty());
+
+        String minimal = System.getProperty("stress.scaling");
+        if (minimal != null) {
+            assertTrue("Speedup with " + measured + " threads was " + speedup, speedup >= Double.parseDouble(minimal));
+        }
+    }
+
+}
@@ -1,23 +1,41 @@
 package com.github.francofabio.vraptor.jackson.deserialization;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.text.SimpleDateFormat;
+import java.util.Iterator;
+import java.util.List;
 
+import org.codehaus.jackson.Base64Variants;
+import org.codehaus.jackson.Version;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.module.SimpleModule;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import br.com.caelum.vraptor.core.InterceptorStack;
 import br.com.caelum.vraptor.http.ParameterNameProvider;
 import br.com.caelum.vraptor.resource.DefaultResourceClass;
 import br.com.caelum.vraptor.resource.DefaultResourceMethod;
 
 import com.github.francofabio.vraptor.jackson.deserialization.JacksonDeserialization;
+import com.github.francofabio.vraptor.jackson.model.Address;
 import com.github.francofabio.vraptor.jackson.model.Order;
 import com.github.francofabio.vraptor.jackson.model.Product;
 
@@ -25,15 +43,27 @@ public class JacksonDeserializationTest {
 
     private JacksonDeserialization deserializer;
     private ParameterNameProvider provider;
+    private UpdateTargetResolver resolver;
     private DefaultResourceMethod list;
     private DefaultResourceMethod listLimit;
     private DefaultResourceMethod add;
     private DefaultResourceMethod addProduct;
+    private DefaultResourceMethod importProducts;
+    private DefaultResourceMethod importOrderProducts;
+    private DefaultResourceMethod update;
+    private DefaultResourceMethod updateAll;
+    private DefaultResourceMethod updateProducts;
+    private DefaultResourceMethod upload;
+    private DefaultResourceMethod patch;
+    private DefaultResourceMethod replace;
+    private DefaultResourceMethod bareUpdate;
+    private DefaultResourceMethod bareAddProduct;
 
     @Before
     public void setup() throws Exception {
         provider = mock(ParameterNameProvider.class);
-        deserializer = new JacksonDeserialization(provider);
+        resolver = mock(UpdateTargetResolver.class);
+        deserializer = new JacksonDeserialization(provider, resolver);
 
         DefaultResourceClass resourceClass = new DefaultResourceClass(OrderController.class);
         
@@ -41,6 +71,18 @@ public class JacksonDeserializationTest {
         listLimit = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("list", Integer.class));
         add = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("add", Order.class));
         addProduct = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("addProduct", Order.class, Product.class));
+        importProducts = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("importProducts", Iterator.class));
+        importOrderProducts = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("importProducts", Order.class, Iterable.class));
+        update = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("update", Order.class));
+        updateAll = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("update", List.class));
+        updateProducts = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("update", Order.class, Product.class));
+        upload = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("upload", BinaryContent.class));
+        patch = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("patch", Order.class));
+        replace = new DefaultResourceMethod(resourceClass, OrderController.class.getDeclaredMethod("replace", Order.class));
+
+        DefaultResourceClass bareClass = new DefaultResourceClass(BareOrderController.class);
+        bareUpdate = new DefaultResourceMethod(bareClass, BareOrderController.class.getDeclaredMethod("update", Order.class));
+        bareAddProduct = new DefaultResourceMethod(bareClass, BareOrderController.class.getDeclaredMethod("addProduct", Order.class, Product.class));
     }
 
     static class OrderController {
@@ -53,6 +95,35 @@ public class JacksonDeserializationTest {
 
         public void addProduct(Order order, Product product) {}
 
+        public void importProducts(Iterator<Product> products) {}
+
+        public void importProducts(Order order, Iterable<Product> products) {}
+
+        @WithoutRoot
+        public void update(Order order) {}
+
+        @WithoutRoot
+        public void update(List<Order> orders) {}
+
+        @WithoutRoot
+        public void update(Order order, Product product) {}
+
+        public void upload(BinaryContent attachment) {}
+
+        public void patch(@Updating Order order) {}
+
+        @WithoutRoot
+        public void replace(@Updating Order order) {}
+
+    }
+
+    @WithoutRoot
+    static class BareOrderController {
+
+        public void update(Order order) {}
+
+        public void addProduct(Order order, Product product) {}
+
     }
 
     @Test(expected=IllegalArgumentException.class)
@@ -147,5 +218,333 @@ public class JacksonDeserializationTest {
         assertThat(order.getProducts().get(1).getId(), is(2L));
         assertThat(order.getProducts().get(1).getGroup().getId(), is(2L));
     }
+
+    @Test
+    public void shouldStreamIteratorArgument() {
+        String json = "{\"products\":[{\"id\":1,\"name\":\"Product 1\"},{\"id\":2,\"name\":\"Product 2\"}]}";
+        InputStream input = new ByteArrayInputStream(json.getBytes());
+        
+        when(provider.parameterNamesFor(importProducts.getMethod())).thenReturn(new String[] {"products"});
+        
+        Object[] deserialized = deserializer.deserialize(input, importProducts);
+        
+        assertThat(deserialized.length, is(1));
+        assertThat(deserialized[0], is(instanceOf(Iterator.class)));
+        
+        @SuppressWarnings("unchecked")
+        Iterator<Product> products = (Iterator<Product>) deserialized[0];
+        assertThat(products.hasNext(), is(true));
+        assertThat(products.next().getId(), is(1L));
+        assertThat(products.next().getName(), is("Product 2"));
+        assertThat(products.hasNext(), is(false));
+    }
+    
+    @Test
+    public void shouldReadStreamedArgumentOnlyWhenIterated() {
+        StringBuilder json = new StringBuilder("{\"products\":[");
+        for (int i = 1; i <= 10000; i++) {
+            json.append(i > 1 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"Product ").append(i).append("\"}");
+        }
+        json.append("]}");
+        ByteArrayInputStream input = new ByteArrayInputStream(json.toString().getBytes());
+        
+        when(provider.parameterNamesFor(importProducts.getMethod())).thenReturn(new String[] {"products"});
+        
+        Object[] deserialized = deserializer.deserialize(input, importProducts);
+        assertThat(input.available() > 0, is(true));
+        
+        @SuppressWarnings("unchecked")
+        Iterator<Product> products = (Iterator<Product>) deserialized[0];
+        long count = 0;
+        while (products.hasNext()) {
+            assertThat(products.next().getId(), is(equalTo(++count)));
+        }
+        assertThat(count, is(10000L));
+        assertThat(input.available(), is(0));
+    }
+    
+    @Test
+    public void shouldBindArgumentsBeforeStreamedIterable() {
+        String json = "{\"order\":{\"id\":1},\"products\":[{\"id\":1,\"name\":\"Product 1\"}]}";
+        InputStream input = new ByteArrayInputStream(json.getBytes());
+        
+        when(provider.parameterNamesFor(importOrderProducts.getMethod())).thenReturn(new String[] {"order", "products"});
+        
+        Object[] deserialized = deserializer.deserialize(input, importOrderProducts);
+        
+        assertThat(deserialized.length, is(2));
+        assertThat(((Order) deserialized[0]).getId(), is(1L));
+        
+        @SuppressWarnings("unchecked")
+        Iterable<Product> products = (Iterable<Product>) deserialized[1];
+        Iterator<Product> iterator = products.iterator();
+        assertThat(iterator.next().getName(), is("Product 1"));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void shouldStreamNDJSONLines() {
+        String json = "{\"id\":1,\"name\":\"Product 1\"}\n{\"id\":2,\"name\":\"Product 2\"}\n";
+        InputStream input = new ByteArrayInputStream(json.getBytes());
+        
+        when(provider.parameterNamesFor(importProducts.getMethod())).thenReturn(new String[] {"products"});
+        
+        Object[] deserialized = new JacksonNDJSONDeserialization(provider).deserialize(input, importProducts);
+        
+        @SuppressWarnings("unchecked")
+        Iterator<Product> products = (Iterator<Product>) deserialized[0];
+        assertThat(products.next().getId(), is(1L));
+        assertThat(products.next().getName(), is("Product 2"));
+        assertThat(products.hasNext(), is(false));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void shouldNotAcceptNDJSONWithoutStreamedArgument() {
+        /*
+         * Binding plans are shared, so the names must be right whichever test
+         * builds the plan first
+         */
+        when(provider.parameterNamesFor(add.getMethod())).thenReturn(new String[] {"order"});
+        new JacksonNDJSONDeserialization(provider).deserialize(new ByteArrayInputStream(new byte[0]), add);
+    }
+
+    @Test
+    public void shouldDeserializeBodyWithoutRoot() {
+        String json = "{\"id\":1,\"products\":[{\"id\":1,\"name\":\"Product 1\","
+                + "\"group\":{\"id\":1,\"name\":\"Group 1\"}}]}"; 
+        InputStream input = new ByteArrayInputStream(json.getBytes());
+        
+        Object[] deserialized = deserializer.deserialize(input, update);
+        
+        assertThat(deserialized.length, is(1));
+        Order order = (Order) deserialized[0];
+        assertThat(order.getId(), is(1L));
+        assertThat(order.getProducts().get(0).getGroup().getId(), is(1L));
+    }
+    
+    @Test
+    public void shouldDeserializeGenericBodyWithoutRoot() {
+        String json = "[{\"id\":1},{\"id\":2}]"; 
+        InputStream input = new ByteArrayInputStream(json.getBytes());
+        
+        Object[] deserialized = deserializer.deserialize(input, updateAll);
+        
+        @SuppressWarnings("unchecked")
+        List<Order> orders = (List<Order>) deserialized[0];
+        assertThat(orders.size(), is(2));
+        assertThat(orders.get(1).getId(), is(2L));
+    }
+    
+    @Test
+    public void shouldApplyWithoutRootOfTheClassToSingleArgumentMethods() {
+        Object[] deserialized = deserializer.deserialize(new ByteArrayInputStream("{\"id\":1}".getBytes()), bareUpdate);
+        
+        assertThat(((Order) deserialized[0]).getId(), is(1L));
+    }
+    
+    @Test
+    public void shouldKeepRootsOfMultipleArgumentMethodsOfClassWithoutRoot() {
+        String json = "{\"order\":{\"id\":1},\"product\":{\"id\":2}}";
+        
+        when(provider.parameterNamesFor(bareAddProduct.getMethod())).thenReturn(new String[] {"order", "product"});
+        
+        Object[] deserialized = deserializer.deserialize(new ByteArrayInputStream(json.getBytes()), bareAddProduct);
+        
+        assertThat(((Order) deserialized[0]).getId(), is(1L));
+        assertThat(((Product) deserialized[1]).getId(), is(2L));
+    }
+    
+    @Test
+    public void shouldDeserializeEmptyBodyWithoutRootAsNull() {
+        Object[] deserialized = deserializer.deserialize(new ByteArrayInputStream(new byte[0]), update);
+        
+        assertThat(deserialized.length, is(1));
+        assertThat(deserialized[0], is(nullValue()));
+    }
+    
+    @Test
+    public void shouldDeserializeDates() throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        String json = "{\"order\":{\"id\":1},\"product\":{\"id\":1,\"creationDate\":\"2012-02-15\"}}";
+        
+        when(provider.parameterNamesFor(addProduct.getMethod())).thenReturn(new String[] {"order", "product"});
+        
+        Product product = (Product) deserializer.deserialize(new ByteArrayInputStream(json.getBytes()), addProduct)[1];
+        assertThat(product.getCreationDate(), is(sdf.parse("2012-02-15")));
+        
+        json = "{\"order\":{\"id\":1},\"product\":{\"id\":1,\"creationDate\":\"2012-2-30\"}}";
+        product = (Product) deserializer.deserialize(new ByteArrayInputStream(json.getBytes()), addProduct)[1];
+        assertThat(product.getCreationDate(), is(sdf.parse("2012-03-01")));
+    }
+    
+    @Test
+    public void shouldUpdateTheResolvedInstanceWithThePresentFields() {
+        Order existing = new Order(1L, null, new Address("Street 1", "City 1", "00000-000"));
+        String json = "{\"order\":{\"products\":[{\"id\":2,\"name\":\"Product 2\"}]}}";
+        
+        when(provider.parameterNamesFor(patch.getMethod())).thenReturn(new String[] {"order"});
+        when(resolver.resolve(patch, "order", Order.class)).thenReturn(existing);
+        
+        Object[] deserialized = deserializer.deserialize(new ByteArrayInputStream(json.getBytes()), patch);
+        
+        assertThat(deserialized[0], is(sameInstance((Object) existing)));
+        assertThat(existing.getId(), is(1L));
+        assertThat(existing.getDelivery().getStreet(), is("Street 1"));
+        assertThat(existing.getProducts().get(0).getName(), is("Product 2"));
+    }
+    
+    @Test
+    public void shouldUpdateTheResolvedInstanceWithoutRoot() {
+        Order existing = new Order(1L, null, new Address("Street 1", "City 1", "00000-000"));
+        when(resolver.resolve(replace, null, Order.class)).thenReturn(existing);
+        
+        Object[] deserialized = deserializer.deserialize(new ByteArrayInputStream("{\"id\":2}".getBytes()), replace);
+        
+        assertThat(deserialized[0], is(sameInstance((Object) existing)));
+        assertThat(existing.getId(), is(2L));
+        assertThat(existing.getDelivery().getCity(), is("City 1"));
+    }
+    
+    @Test
+    public void shouldBindNewInstanceWhenNoneIsResolved() {
+        when(provider.parameterNamesFor(patch.getMethod())).thenReturn(new String[] {"order"});
+        
+        Object[] deserialized = deserializer.deserialize(new ByteArrayInputStream("{\"order\":{\"id\":3}}".getBytes()), patch);
+        
+        assertThat(((Order) deserialized[0]).getId(), is(3L));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void shouldNotAcceptManyArgumentsWithoutRoot() {
+        deserializer.deserialize(new ByteArrayInputStream(new byte[0]), updateProducts);
+    }
+
+    @Test
+    public void shouldDeserializeSmallBinaryContentInMemory() throws IOException {
+        InputStream input = new ByteArrayInputStream("{\"attachment\":\"aGVsbG8gd29ybGQ=\"}".getBytes());
+        
+        when(provider.parameterNamesFor(upload.getMethod())).thenReturn(new String[] {"attachment"});
+        
+        BinaryContent attachment = (BinaryContent) deserializer.deserialize(input, upload)[0];
+        
+        assertThat(attachment.isInMemory(), is(true));
+        assertThat(attachment.getLength(), is(11L));
+        assertThat(contentOf(attachment), is("hello world"));
+    }
+    
+    @Test
+    public void shouldSpillLargeBinaryContentToFile() throws IOException {
+        InputStream input = new ByteArrayInputStream("{\"attachment\":\"aGVsbG8gd29ybGQ\"}".getBytes());
+        
+        when(provider.parameterNamesFor(upload.getMethod())).thenReturn(new String[] {"attachment"});
+        
+        BinaryContent attachment = (BinaryContent) spillingAfter(4).deserialize(input, upload)[0];
+        
+        try {
+            assertThat(attachment.isInMemory(), is(false));
+            assertThat(attachment.getFile().length(), is(11L));
+            assertThat(contentOf(attachment), is("hello world"));
+        } finally {
+            attachment.delete();
+        }
+        assertThat(attachment.getFile().exists(), is(false));
+    }
+    
+    @Test
+    public void shouldDecodeEscapedBinaryContent() throws IOException {
+        InputStream input = new ByteArrayInputStream("{\"attachment\":\"aGVs\\u0062G8g\\nd29yPz8\\/\"}".getBytes());
+        
+        when(provider.parameterNamesFor(upload.getMethod())).thenReturn(new String[] {"attachment"});
+        
+        BinaryContent attachment = (BinaryContent) deserializer.deserialize(input, upload)[0];
+        
+        assertThat(contentOf(attachment), is("hello wor???"));
+    }
+    
+    @Test
+    public void shouldDecodeBinaryContentLongerThanTheParserBuffer() throws IOException {
+        byte[] data = new byte[50000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 26);
+        }
+        String body = "{\"attachment\":\"" + Base64Variants.getDefaultVariant().encode(data) + "\"}";
+        
+        when(provider.parameterNamesFor(upload.getMethod())).thenReturn(new String[] {"attachment"});
+        
+        BinaryContent attachment = (BinaryContent) deserializer.deserialize(new ByteArrayInputStream(body.getBytes()), upload)[0];
+        
+        assertThat(attachment.getLength(), is(50000L));
+        assertThat(contentOf(attachment), is(new String(data)));
+    }
+    
+    @Test
+    public void shouldDecodeBinaryContentReadFromCharacters() throws IOException {
+        BinaryContent attachment = JacksonDeserialization.createObjectMapper().readValue(new StringReader("\"aGVsbG8gd29ybGQ=\""), BinaryContent.class);
+        
+        assertThat(contentOf(attachment), is("hello world"));
+    }
+    
+    @Test
+    public void shouldDeleteSpilledBinaryContentWhenTheRequestEnds() throws Exception {
+        final InputStream input = new ByteArrayInputStream("{\"attachment\":\"aGVsbG8gd29ybGQ=\"}".getBytes());
+        final JacksonDeserialization deserializer = spillingAfter(4);
+        final BinaryContent[] attachment = new BinaryContent[1];
+        
+        when(provider.parameterNamesFor(upload.getMethod())).thenReturn(new String[] {"attachment"});
+        
+        InterceptorStack stack = mock(InterceptorStack.class);
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                attachment[0] = (BinaryContent) deserializer.deserialize(input, upload)[0];
+                assertThat(attachment[0].getFile().exists(), is(true));
+                return null;
+            }
+        }).when(stack).next(upload, null);
+        
+        new TemporaryFilesInterceptor().intercept(stack, upload, null);
+        
+        assertThat(attachment[0].getFile().exists(), is(false));
+    }
+    
+    @Test
+    public void shouldOnlyInterceptMethodsBindingBinaryContent() {
+        TemporaryFilesInterceptor interceptor = new TemporaryFilesInterceptor();
+        
+        assertThat(interceptor.accepts(upload), is(true));
+        assertThat(interceptor.accepts(add), is(false));
+        assertThat(interceptor.accepts(importProducts), is(false));
+    }
+    
+    @Test
+    public void shouldGiveSubclassesAMapperOfTheirOwn() {
+        JacksonDeserialization subclass = new JacksonDeserialization(provider) {};
+        
+        assertThat(subclass.getObjectMapper(), is(not(sameInstance(deserializer.getObjectMapper()))));
+        assertThat(new JacksonDeserialization(provider).getObjectMapper(), is(sameInstance(deserializer.getObjectMapper())));
+    }
+    
+    private JacksonDeserialization spillingAfter(final int threshold) {
+        return new JacksonDeserialization(provider) {
+            @Override
+            protected ObjectMapper getObjectMapper() {
+                ObjectMapper mapper = super.getObjectMapper();
+                SimpleModule module = new SimpleModule("test", new Version(1, 0, 0, null));
+                module.addDeserializer(BinaryContent.class, new BinaryContentDeserializer(threshold));
+                mapper.registerModule(module);
+                return mapper;
+            }
+        };
+    }
+    
+    private String contentOf(BinaryContent content) throws IOException {
+        byte[] data = new byte[(int) content.getLength()];
+        DataInputStream input = new DataInputStream(content.getInputStream());
+        try {
+            input.readFully(data);
+        } finally {
+            input.close();
+        }
+        return new String(data);
+    }
     
 }
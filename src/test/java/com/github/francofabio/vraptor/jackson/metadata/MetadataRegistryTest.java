@@ -0,0 +1,106 @@
+package com.github.francofabio.vraptor.jackson.metadata;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.francofabio.vraptor.jackson.model.Catalog;
+import com.github.francofabio.vraptor.jackson.model.HardDisk;
+import com.github.francofabio.vraptor.jackson.model.Inventory;
+import com.github.francofabio.vraptor.jackson.model.Order;
+import com.github.francofabio.vraptor.jackson.model.Product;
+
+public class MetadataRegistryTest {
+
+    private MetadataRegistry registry;
+
+    @Before
+    public void setup() {
+        registry = new MetadataRegistry();
+    }
+
+    static class ProductController {
+
+        public void importProducts(Iterator<Product> products, Integer limit) {}
+
+    }
+
+    @Test
+    public void shouldReflectClassOnlyOnce() {
+        assertThat(registry.getClassMetadata(Order.class), is(sameInstance(registry.getClassMetadata(Order.class))));
+    }
+
+    @Test
+    public void shouldListSubclassFieldsFirst() {
+        List<String> names = new ArrayList<String>();
+        for (PropertyMetadata property : registry.getClassMetadata(HardDisk.class).getProperties()) {
+            names.add(property.getName());
+        }
+
+        assertThat(names.toString(), is(equalTo("[capacity, id, name, creationDate, group, data, image]")));
+    }
+
+    @Test
+    public void shouldResolveCollectionElementType() {
+        PropertyMetadata products = registry.getClassMetadata(Order.class).getProperty("products");
+
+        assertThat(products.isCollection(), is(true));
+        assertThat(products.isLeaf(), is(false));
+        assertThat(products.getElementType(), is(equalTo((Object) Product.class)));
+    }
+
+    @Test
+    public void shouldClassifyLeafTypes() {
+        ClassMetadata product = registry.getClassMetadata(Product.class);
+
+        assertThat(product.isLeaf(), is(false));
+        assertThat(product.getProperty("creationDate").isLeaf(), is(true));
+        assertThat(product.getProperty("image").isLeaf(), is(true));
+        assertThat(product.getProperty("group").isLeaf(), is(false));
+    }
+
+    @Test
+    public void shouldClassifyArrays() {
+        ClassMetadata catalog = registry.getClassMetadata(Catalog.class);
+
+        assertThat(catalog.getProperty("prices").isLeaf(), is(true));
+        assertThat(catalog.getProperty("products").isLeaf(), is(false));
+        assertThat(catalog.getProperty("products").isCollection(), is(true));
+        assertThat(catalog.getProperty("products").getElementType(), is(equalTo((Object) Product.class)));
+        assertThat(MetadataRegistry.isLeaf(String[].class), is(true));
+    }
+
+    @Test
+    public void shouldResolveMapValueType() {
+        PropertyMetadata productsBySku = registry.getClassMetadata(Inventory.class).getProperty("productsBySku");
+
+        assertThat(productsBySku.isLeaf(), is(true));
+        assertThat(productsBySku.getElementType(), is(equalTo((Object) Product.class)));
+    }
+
+    @Test
+    public void shouldReadValuesThroughGetters() {
+        PropertyMetadata name = registry.getClassMetadata(Product.class).getProperty("name");
+
+        assertThat(name.getValue(new Product(1L, "Product 1")), is(equalTo((Object) "Product 1")));
+    }
+
+    @Test
+    public void shouldResolveParameterElementTypes() throws Exception {
+        MethodMetadata method = registry.getMethodMetadata(ProductController.class.getDeclaredMethod("importProducts",
+                Iterator.class, Integer.class));
+
+        assertThat(method.getParameterCount(), is(2));
+        assertThat(method.getElementType(0), is(equalTo((Object) Product.class)));
+        assertThat(method.getElementType(1), is(equalTo((Object) Object.class)));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.github.francofabio.vraptor.jackson.model;
+
+public class Catalog {
+    private Long id;
+    private double[] prices;
+    private Product[] products;
+
+    public Catalog() {
+    }
+
+    public Catalog(Long id, double[] prices, Product... products) {
+        this.id = id;
+        this.prices = prices;
+        this.products = products;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public double[] getPrices() {
+        return prices;
+    }
+
+    public void setPrices(double[] prices) {
+        this.prices = prices;
+    }
+
+    public Product[] getProducts() {
+        return products;
+    }
+
+    public void setProducts(Product[] products) {
+        this.products = products;
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.francofabio.vraptor.jackson.model;
+
+import java.io.File;
+import java.io.InputStream;
+
+public class Document {
+
+    private Long id;
+    private InputStream content;
+    private File file;
+    private int[] pages;
+    private String[] tags;
+
+    public Document() {
+        super();
+    }
+
+    public Document(Long id, InputStream content, File file, int[] pages, String[] tags) {
+        super();
+        this.id = id;
+        this.content = content;
+        this.file = file;
+        this.pages = pages;
+        this.tags = tags;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public InputStream getContent() {
+        return content;
+    }
+
+    public void setContent(InputStream content) {
+        this.content = content;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public int[] getPages() {
+        return pages;
+    }
+
+    public void setPages(int[] pages) {
+        this.pages = pages;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    public void setTags(String[] tags) {
+        this.tags = tags;
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.francofabio.vraptor.jackson.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Inventory {
+    private Long id;
+    private Map<String, Product> productsBySku;
+
+    public Inventory() {
+        this.productsBySku = new LinkedHashMap<String, Product>();
+    }
+
+    public Inventory(Long id) {
+        this();
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Map<String, Product> getProductsBySku() {
+        return productsBySku;
+    }
+
+    public void setProductsBySku(Map<String, Product> productsBySku) {
+        this.productsBySku = productsBySku;
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.francofabio.vraptor.jackson.model;
+
+import java.util.List;
+
+/**
+ * Fake lazy-loading proxy: reading any field but the identifier loads it.
+ */
+public class LazyGroup extends Group {
+    private boolean loaded;
+    private boolean loadedOnAccess;
+
+    public LazyGroup(Long id, String name) {
+        super(id, name);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isLoadedOnAccess() {
+        return loadedOnAccess;
+    }
+
+    public void load() {
+        this.loaded = true;
+    }
+
+    private void access() {
+        if (!loaded) {
+            loaded = true;
+            loadedOnAccess = true;
+        }
+    }
+
+    @Override
+    public String getName() {
+        access();
+        return super.getName();
+    }
+
+    @Override
+    public List<Product> getProducts() {
+        access();
+        return super.getProducts();
+    }
+}
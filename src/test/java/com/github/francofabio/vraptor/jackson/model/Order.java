@@ -3,6 +3,9 @@ package com.github.francofabio.vraptor.jackson.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.github.francofabio.vraptor.jackson.serialization.JsonProfile;
+
+@JsonProfile(name = "summary", include = "customer", exclude = { "id", "customer.id" })
 public class Order {
     private Long id;
     private Customer customer;
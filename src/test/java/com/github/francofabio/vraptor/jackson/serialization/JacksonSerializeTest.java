@@ -2,31 +2,57 @@ package com.github.francofabio.vraptor.jackson.serialization;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.codec.binary.Base64;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import br.com.caelum.vraptor.scan.ClasspathResolver;
+import br.com.caelum.vraptor.view.ResultException;
 
 import com.github.francofabio.vraptor.jackson.model.Address;
+import com.github.francofabio.vraptor.jackson.model.Catalog;
 import com.github.francofabio.vraptor.jackson.model.Customer;
+import com.github.francofabio.vraptor.jackson.model.Document;
 import com.github.francofabio.vraptor.jackson.model.Group;
 import com.github.francofabio.vraptor.jackson.model.HardDisk;
+import com.github.francofabio.vraptor.jackson.model.Inventory;
+import com.github.francofabio.vraptor.jackson.model.LazyGroup;
 import com.github.francofabio.vraptor.jackson.model.Order;
 import com.github.francofabio.vraptor.jackson.model.Product;
 import com.github.francofabio.vraptor.jackson.serialization.JacksonSerialization;
@@ -286,6 +312,92 @@ public class JacksonSerializeTest {
         assertThat(jsonResult(), is(equalTo(expectedResult)));
     }
 
+    @Test
+    public void shouldNotIndentOtherSerializationsSharingTheMapper() throws IOException {
+        String expectedResult = "{\"group\":{\"id\":1,\"name\":\"Group 1\"}}";
+
+        new JacksonSerialization(mock(HttpServletResponse.class)).indented();
+        jacksonSerialization.from(new Group(1L, "Group 1")).serialize();
+
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeCompositeRoots() {
+        String expectedResult = "{\"product\":{\"id\":1,\"name\":\"Product 1\",\"creationDate\":\"" + currentDateAsStr
+                + "\",\"group\":{\"name\":\"Group 1\"}},\"groups\":[{\"id\":1,\"name\":\"Group 1\"},"
+                + "{\"id\":2,\"name\":\"Group 2\"}],\"count\":2}";
+
+        jacksonSerialization.composite()
+                .add("product", createProductWithGroup(1L, 1L)).include("group").exclude("group.id")
+                .add("groups", Arrays.asList(createGroup(1L), createGroup(2L)))
+                .add("missing", null)
+                .add("count", 2)
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotIncludeFieldsBeforeTheFirstRoot() {
+        jacksonSerialization.composite().include("group");
+    }
+
+    @Test
+    public void shouldApplyProfileToTheFirstCompositeRoot() {
+        String expectedResult = "{\"order\":{\"customer\":{\"name\":\"Franco\"}},\"group\":{\"id\":1,\"name\":\"Group 1\"}}";
+
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+
+        jacksonSerialization.profile("summary").composite()
+                .add("order", order)
+                .add("group", createGroup(1L))
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotSerializeCompositeRootsWithoutRoot() {
+        jacksonSerialization.withoutRoot();
+        jacksonSerialization.composite();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotSerializeCompositeRootsWithSparseFields() {
+        withFields("id").composite();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotSerializeCompositeRootsBuffered() {
+        jacksonSerialization.buffered().composite();
+    }
+
+    @Test
+    public void shouldSerializeDatesAsTheConfiguredFormat() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            Date date = new Date((random.nextLong() >>> 1) % (400L * 365 * 24 * 60 * 60 * 1000));
+            StringWriter writer = new StringWriter();
+            new JacksonSerializer(writer, JacksonSerialization.createObjectMapper(), true).from(date).serialize();
+
+            assertThat(writer.toString(), is(equalTo("\"" + sdf.format(date) + "\"")));
+        }
+    }
+
+    @Test
+    public void shouldSerializeTheSameObjectRepeatedly() throws IOException {
+        String expectedResult = "{\"group\":{\"id\":1,\"name\":\"Group 1\"}}";
+        Group group = new Group(1L, "Group 1");
+
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            when(response.getWriter()).thenReturn(new PrintWriter(out));
+            new JacksonSerialization(response).from(group).serialize();
+
+            assertThat(out.toString(), is(equalTo(expectedResult)));
+        }
+    }
+
     @Test
     public void shouldSerializeObjectAttribute() {
         String expectedResult = "{\"product\":{\"id\":1,\"name\":\"Product 1\",\"creationDate\":\"" + currentDateAsStr
@@ -310,6 +422,76 @@ public class JacksonSerializeTest {
         assertThat(jsonResult(), is(equalTo(expectedResult)));
     }
 
+    @Test
+    public void shouldSerializeInputStreamAttributeAsBase64() {
+        String expectedResult = "{\"product\":{\"id\":1,\"name\":\"Product 1\",\"creationDate\":\"" + currentDateAsStr
+                + "\",\"data\":\"aGVsbG8gd29ybGQ=\"}}";
+
+        Product product = new Product(1L, "Product 1", currentDate);
+        product.setData(new ByteArrayInputStream("hello world".getBytes()));
+
+        jacksonSerialization.from(product).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeFileAttributeAsItsPath() {
+        File file = new File("/tmp/products/1.bin");
+        String expectedResult = "{\"product\":{\"id\":1,\"name\":\"Product 1\",\"creationDate\":\"" + currentDateAsStr
+                + "\",\"data\":\"" + file.getPath() + "\"}}";
+
+        Product product = new Product(1L, "Product 1", currentDate);
+        product.setData(file);
+
+        jacksonSerialization.from(product).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeLargeFileAttributeAsBase64() throws IOException {
+        byte[] content = new byte[100000];
+        new Random(42).nextBytes(content);
+        File file = File.createTempFile("vraptor-jackson", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(content);
+            out.close();
+
+            String expectedResult = "{\"product\":{\"id\":1,\"name\":\"Product 1\",\"creationDate\":\""
+                    + currentDateAsStr + "\",\"data\":\"" + Base64.encodeBase64String(content) + "\"}}";
+
+            Product product = new Product(1L, "Product 1", currentDate);
+            product.setData(new Base64File(file));
+
+            jacksonSerialization.from(product).serialize();
+            assertThat(jsonResult(), is(equalTo(expectedResult)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shouldLeaveStreamsFilesAndArraysOutOfTheDefaultProjection() {
+        String expectedResult = "{\"document\":{\"id\":1}}";
+
+        Document document = new Document(1L, new ByteArrayInputStream("secret".getBytes()), new File("/etc/passwd"),
+                new int[] { 1, 2 }, new String[] { "a" });
+
+        jacksonSerialization.from(document).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeStreamsWhenIncluded() {
+        String expectedResult = "{\"document\":{\"id\":1,\"content\":\"c2VjcmV0\"}}";
+
+        Document document = new Document(1L, new ByteArrayInputStream("secret".getBytes()), new File("/etc/passwd"),
+                new int[] { 1, 2 }, new String[] { "a" });
+
+        jacksonSerialization.from(document).include("content").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
     @Test
     public void shouldSerializeNull() {
         String expectedResult = "{}";
@@ -342,4 +524,685 @@ public class JacksonSerializeTest {
         assertThat(jsonResult(), is(equalTo(expectedResult)));
     }
 
+    @JsonProfile(name = "withGroup", type = Product.class, include = "group", exclude = { "creationDate", "group.id" })
+    static class ProductController {
+    }
+
+    static class InvalidProfileController {
+        @JsonProfile(name = "invalid", type = Product.class, exclude = "group.description")
+        public void list() {
+        }
+    }
+
+    @Test
+    public void shouldShareThePlansOfDefaultProjectionsAndProfiles() {
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+        ObjectMapper mapper = JacksonSerialization.createObjectMapper();
+
+        JacksonSerializer first = new JacksonSerializer(new StringWriter(), mapper);
+        first.from(createProduct(1L)).serialize();
+        JacksonSerializer second = new JacksonSerializer(new StringWriter(), mapper);
+        second.from(createProduct(2L)).serialize();
+        assertThat(second.getProjection().getPlans().get(Product.class),
+                is(sameInstance(first.getProjection().getPlans().get(Product.class))));
+
+        first = new JacksonSerializer(new StringWriter(), mapper).profile("summary");
+        first.from(order).serialize();
+        second = new JacksonSerializer(new StringWriter(), mapper).profile("summary");
+        second.from(order).serialize();
+        assertThat(second.getProjection().getPlans().get(Order.class),
+                is(sameInstance(first.getProjection().getPlans().get(Order.class))));
+    }
+
+    @Test
+    public void shouldPrecompilePlansOfDefaultProjectionAndProfiles() {
+        JacksonSerializer.precompile(Order.class);
+
+        JacksonSerializer serializer = new JacksonSerializer(new StringWriter(), JacksonSerialization.createObjectMapper());
+        serializer.from(new Order(1L, null, null));
+        assertThat(serializer.getProjection().getPlans().containsKey(Order.class), is(true));
+
+        NamedTreeNode summary = ProfileRegistry.getInstance().getProfile(Order.class, "summary").getTree();
+        assertThat(summary.getPlans().containsKey(Order.class), is(true));
+        assertThat(summary.getChild("customer").getPlans().containsKey(Customer.class), is(true));
+    }
+
+    @Test
+    public void shouldSerializeWithProfileOfRootType() {
+        String expectedResult = "{\"order\":{\"customer\":{\"name\":\"Franco\"}}}";
+
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+
+        jacksonSerialization.profile("summary").from(order).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeWithProfileDeclaredOnResource() {
+        String expectedResult = "{\"productList\":[{\"id\":1,\"name\":\"Product 1\",\"group\":{\"name\":\"Group 1\"}}]}";
+
+        new JsonProfileHandler(classpath()).handle(ProductController.class);
+
+        jacksonSerialization.profile("withGroup").from(Collections.singletonList(createProductWithGroup(1L, 1L)))
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldNotChangeProfileWhenIncludingFields() throws IOException {
+        String expectedResult = "{\"order\":{\"customer\":{\"name\":\"Franco\"}}}";
+
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+
+        HttpServletResponse other = mock(HttpServletResponse.class);
+        when(other.getWriter()).thenReturn(new PrintWriter(new ByteArrayOutputStream()));
+        new JacksonSerialization(other).profile("summary").from(order).include("customer.address").exclude("customer")
+                .serialize();
+
+        jacksonSerialization.profile("summary").from(order).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test(expected = ResultException.class)
+    public void shouldNotAcceptUnknownProfile() {
+        jacksonSerialization.profile("unknown").from(createProduct(1L)).serialize();
+    }
+
+    @Test(expected = ResultException.class)
+    public void shouldRejectInvalidProfileWhenLoaded() {
+        new JsonProfileHandler(classpath()).handle(InvalidProfileController.class);
+    }
+
+    @Test
+    public void shouldFindProfilesOfModelTypesWhenStarting() {
+        List<Class<?>> types = JsonProfileHandler.findAnnotatedTypes(classpath("com.github.francofabio.vraptor.jackson.model"));
+
+        assertThat(types.contains(Order.class), is(true));
+        assertThat(types.contains(Product.class), is(false));
+    }
+
+    private ClasspathResolver classpath(final String... packages) {
+        return new ClasspathResolver() {
+            public URL findWebInfClassesLocation() {
+                return null;
+            }
+
+            public List<String> findBasePackages() {
+                return Arrays.asList(packages);
+            }
+
+            public ClassLoader getClassLoader() {
+                return JacksonSerializeTest.class.getClassLoader();
+            }
+        };
+    }
+
+    private String serializeDelta(Object object, String resource, String baseVersion, HttpServletResponse response,
+            ByteArrayOutputStream out) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeader(JacksonDeltaSerializer.BASE_VERSION_HEADER)).thenReturn(baseVersion);
+        when(response.getWriter()).thenReturn(new PrintWriter(out));
+
+        new JacksonSerialization(response, request).delta(resource).from(object).include("products").serialize();
+
+        ArgumentCaptor<String> version = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq(JacksonDeltaSerializer.VERSION_HEADER), version.capture());
+        return version.getValue();
+    }
+
+    @Test
+    public void shouldAnswerWithPatchAgainstTheClientVersion() throws IOException {
+        Order order = new Order(1L, null, null);
+        order.addProduct(createProduct(1L));
+        order.addProduct(createProduct(2L));
+        String version = serializeDelta(order, "/orders/1", null, response, output);
+        assertThat(jsonResult().startsWith("{\"order\":"), is(true));
+
+        order.getProducts().get(1).setName("Renamed");
+        order.addProduct(createProduct(3L));
+        HttpServletResponse patchResponse = mock(HttpServletResponse.class);
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        String newVersion = serializeDelta(order, "/orders/1", version, patchResponse, patch);
+
+        verify(patchResponse).setContentType(JacksonDeltaSerializer.PATCH_CONTENT_TYPE);
+        verify(patchResponse).addHeader("Vary", JacksonDeltaSerializer.BASE_VERSION_HEADER);
+        assertThat(patch.toString(), is(equalTo("[{\"op\":\"replace\",\"path\":\"/order/products/1/name\",\"value\":\"Renamed\"},"
+                + "{\"op\":\"add\",\"path\":\"/order/products/2\",\"value\":{\"id\":3,\"name\":\"Product 3\",\"creationDate\":\""
+                + currentDateAsStr + "\"}}]")));
+        assertThat(newVersion.equals(version), is(false));
+    }
+
+    @Test
+    public void shouldAnswerWithFullBodyWhenVersionIsUnknown() throws IOException {
+        Order order = new Order(2L, null, null);
+        order.addProduct(createProduct(1L));
+
+        serializeDelta(order, "/orders/2", "unknown", response, output);
+
+        verify(response, never()).setContentType(JacksonDeltaSerializer.PATCH_CONTENT_TYPE);
+        verify(response).addHeader("Vary", JacksonDeltaSerializer.BASE_VERSION_HEADER);
+        assertThat(jsonResult().startsWith("{\"order\":"), is(true));
+    }
+
+    @Test
+    public void shouldEvictSnapshotsOverTheBudget() {
+        SnapshotCache cache = new SnapshotCache(20);
+        cache.put("a", "1", "12345");
+        cache.put("a", "2", "12345");
+        cache.get("a", "1");
+        cache.put("a", "3", "12345");
+
+        assertThat(cache.get("a", "1"), is(equalTo("12345")));
+        assertThat(cache.get("a", "2"), is(nullValue()));
+        assertThat(cache.getUsed(), is(20L));
+    }
+
+    @Test
+    public void shouldEscapePatchPaths() throws IOException {
+        ObjectMapper mapper = JacksonSerialization.createObjectMapper();
+        JsonNode source = mapper.readTree("{\"a/b\":1,\"c~d\":[1,2,3],\"e\":true}");
+        JsonNode target = mapper.readTree("{\"a/b\":2,\"c~d\":[1]}");
+
+        assertThat(mapper.writeValueAsString(JsonPatch.diff(source, target)),
+                is(equalTo("[{\"op\":\"remove\",\"path\":\"/e\"},{\"op\":\"replace\",\"path\":\"/a~1b\",\"value\":2},"
+                        + "{\"op\":\"remove\",\"path\":\"/c~0d/2\"},{\"op\":\"remove\",\"path\":\"/c~0d/1\"}]")));
+    }
+
+    private HttpServletResponse streamResponse(final ByteArrayOutputStream out) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+        });
+        return response;
+    }
+
+    private File cacheDirectory() throws IOException {
+        File directory = File.createTempFile("response-cache", "");
+        directory.delete();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    @Test
+    public void shouldServeResponsesFromTheFileCache() throws IOException {
+        String expectedResult = "{\"group\":{\"id\":1,\"name\":\"Group 1\"}}";
+        FileResponseCache cache = new FileResponseCache(cacheDirectory(), 1024);
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        assertThat(cache.serve("group", streamResponse(first)), is(false));
+        new JacksonSerialization(streamResponse(first)).cachedIn(cache, "group").from(createGroup(1L)).serialize();
+        assertThat(first.toString(), is(equalTo(expectedResult)));
+
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        HttpServletResponse response = streamResponse(second);
+        assertThat(cache.serve("group", response), is(true));
+        assertThat(second.toString(), is(equalTo(expectedResult)));
+        verify(response).setContentType("application/json");
+        verify(response).setContentLength(expectedResult.length());
+
+        assertThat(new FileResponseCache(cache.getDirectory(), 1024).contains("group"), is(true));
+    }
+
+    @Test
+    public void shouldNotCreateCacheFileUntilSerialized() throws IOException {
+        FileResponseCache cache = new FileResponseCache(cacheDirectory(), 1024);
+
+        new JacksonSerialization(streamResponse(new ByteArrayOutputStream())).cachedIn(cache, "group")
+                .from(createGroup(1L)).include("products");
+
+        assertThat(cache.getDirectory().list().length, is(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotCacheBufferedResponses() throws IOException {
+        FileResponseCache cache = new FileResponseCache(cacheDirectory(), 1024);
+
+        new JacksonSerialization(streamResponse(new ByteArrayOutputStream())).cachedIn(cache, "group").buffered()
+                .from(createGroup(1L));
+    }
+
+    @Test
+    public void shouldReplaceAndEvictCachedResponses() throws IOException {
+        FileResponseCache cache = new FileResponseCache(cacheDirectory(), 60);
+
+        new JacksonSerialization(streamResponse(new ByteArrayOutputStream())).cachedIn(cache, "a")
+                .from(createGroup(1L)).serialize();
+        new JacksonSerialization(streamResponse(new ByteArrayOutputStream())).cachedIn(cache, "a")
+                .from(createGroup(2L)).serialize();
+        ByteArrayOutputStream replaced = new ByteArrayOutputStream();
+        cache.serve("a", streamResponse(replaced));
+        assertThat(replaced.toString(), is(equalTo("{\"group\":{\"id\":2,\"name\":\"Group 2\"}}")));
+
+        new JacksonSerialization(streamResponse(new ByteArrayOutputStream())).cachedIn(cache, "b")
+                .from(createGroup(3L)).serialize();
+        assertThat(cache.contains("a"), is(false));
+        assertThat(cache.contains("b"), is(true));
+        assertThat(cache.getDirectory().list().length, is(1));
+    }
+
+    @Test
+    public void shouldBufferResponsesWithLengthAndEntityTag() throws IOException {
+        String expectedResult = "{\"group\":{\"id\":1,\"name\":\"Group 1\"}}";
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = streamResponse(body);
+
+        new JacksonSerialization(response).buffered().from(createGroup(1L)).serialize();
+
+        assertThat(body.toString(), is(equalTo(expectedResult)));
+        verify(response).setContentLength(expectedResult.length());
+        verify(response).setHeader(JacksonBufferedSerializer.ETAG_HEADER, "\"" + Digests.sha1(expectedResult) + "\"");
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedWhenTheClientHoldsTheBody() throws IOException {
+        String etag = "\"" + Digests.sha1("{\"group\":{\"id\":1,\"name\":\"Group 1\"}}") + "\"";
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeader(JacksonBufferedSerializer.IF_NONE_MATCH_HEADER)).thenReturn("\"other\", W/" + etag);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = streamResponse(body);
+
+        new JacksonSerialization(response, request).buffered().from(createGroup(1L)).serialize();
+
+        assertThat(body.size(), is(0));
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void shouldSpillLargeBodiesToDiskAndDeleteThem() throws IOException {
+        SpillingOutputStream buffer = new SpillingOutputStream(16);
+        buffer.write("{\"group\":".getBytes("UTF-8"));
+        assertThat(buffer.isInMemory(), is(true));
+        buffer.write("{\"id\":1,\"name\":\"Group 1\"}}".getBytes("UTF-8"));
+        assertThat(buffer.isInMemory(), is(false));
+        buffer.close();
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        buffer.writeTo(target);
+        assertThat(target.toString(), is(equalTo("{\"group\":{\"id\":1,\"name\":\"Group 1\"}}")));
+        assertThat(buffer.getDigest(), is(equalTo(Digests.sha1(target.toString()))));
+
+        File file = buffer.getFile();
+        assertThat(file.exists(), is(true));
+        buffer.dispose();
+        assertThat(file.exists(), is(false));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        new JacksonSerialization(streamResponse(body)).buffered(8).from(createGroup(2L)).serialize();
+        assertThat(body.toString(), is(equalTo("{\"group\":{\"id\":2,\"name\":\"Group 2\"}}")));
+    }
+
+    private JacksonSerialization withFields(String fields) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("fields")).thenReturn(fields);
+        return new JacksonSerialization(response, request).sparseFields();
+    }
+
+    @Test
+    public void shouldNarrowFieldsToRequestedOnes() {
+        String expectedResult = "{\"order\":{\"id\":1,\"products\":[{\"id\":1},{\"id\":2}]}}";
+
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+        order.addProduct(createProduct(1L));
+        order.addProduct(createProduct(2L));
+
+        withFields(" products.id,id,,id ").from(order).include("customer", "products").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldKeepIncludedFieldsOfRequestedObject() {
+        String expectedResult = "{\"order\":{\"customer\":{\"id\":1,\"name\":\"Franco\"}}}";
+
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+
+        withFields("customer").from(order).include("customer").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldNeverWidenIncludedFields() {
+        String expectedResult = "{\"order\":{\"id\":1}}";
+
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+
+        withFields("id,customer.name,unknown").from(order).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeIncludedFieldsWithoutRequestedFields() {
+        String expectedResult = "{\"product\":{\"id\":1,\"name\":\"Product 1\",\"creationDate\":\"" + currentDateAsStr
+                + "\"}}";
+
+        withFields(null).from(createProduct(1L)).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldNarrowProfileFields() {
+        String expectedResult = "{\"order\":{\"customer\":{\"name\":\"Franco\"}}}";
+
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+
+        withFields("id,customer.id,customer.name").profile("summary").from(order).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldNormalizeRequestedFields() {
+        assertThat(SparseFieldsets.normalize("name, id,,name,products.id "), is(equalTo("id,name,products.id")));
+        assertThat(SparseFieldsets.normalize(" , "), is(equalTo((String) null)));
+    }
+
+    @Test
+    public void shouldReuseNarrowedProfiles() {
+        SparseFieldsets fieldsets = new SparseFieldsets(1);
+        SerializationProfile profile = ProfileRegistry.getInstance().getProfile(Order.class, "summary");
+
+        NamedTreeNode narrowed = fieldsets.narrow(profile, "customer");
+        assertThat(fieldsets.narrow(profile, "customer") == narrowed, is(true));
+        fieldsets.narrow(profile, "id");
+        assertThat(fieldsets.narrow(profile, "customer") == narrowed, is(false));
+    }
+
+    private Order createOrderWithProducts() {
+        Order order = new Order(1L, new Customer(1L, "Franco", new Address("rua", "cidade", "9800989")), null);
+        order.addProduct(createProductWithGroup(1L, 1L));
+        return order;
+    }
+
+    @Test
+    public void shouldIncludeAndExcludeFieldPatterns() {
+        String expectedResult = "{\"order\":{\"customer\":{\"name\":\"Franco\",\"address\":{\"street\":\"rua\","
+                + "\"city\":\"cidade\",\"zipCode\":\"9800989\"}},\"products\":[{\"name\":\"Product 1\","
+                + "\"creationDate\":\"" + currentDateAsStr + "\"}]}}";
+
+        jacksonSerialization.from(createOrderWithProducts()).include("customer.*", "products").exclude("**.id")
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldExcludeFieldsOfNestedObjects() {
+        String expectedResult = "{\"order\":{\"id\":1,\"customer\":{\"id\":1},\"products\":[{\"id\":1,"
+                + "\"creationDate\":\"" + currentDateAsStr + "\"}]}}";
+
+        jacksonSerialization.from(createOrderWithProducts()).include("customer", "products").exclude("*.name")
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldIncludeDeepPatternOnCyclicGraph() {
+        String expectedResult = "{\"order\":{\"id\":1,\"customer\":{\"name\":\"Franco\"},\"products\":[{"
+                + "\"name\":\"Product 1\",\"group\":{\"name\":\"Group 1\"}}]}}";
+
+        jacksonSerialization.from(createOrderWithProducts()).include("**.name").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldRemoveObjectsLeftWithoutFields() {
+        String expectedResult = "{\"order\":{\"id\":1}}";
+
+        jacksonSerialization.from(createOrderWithProducts()).include("customer").exclude("customer.*").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test(expected = ResultException.class)
+    public void shouldNotAcceptPartialWildcards() {
+        jacksonSerialization.from(createOrderWithProducts()).include("customer.na*");
+    }
+
+    @Test
+    public void shouldMatchFieldPatterns() {
+        PathPattern pattern = new PathPattern("**.password");
+        assertThat(pattern.matches(new String[] { "password" }), is(true));
+        assertThat(pattern.matches(new String[] { "customer", "user", "password" }), is(true));
+        assertThat(pattern.matches(new String[] { "customer", "name" }), is(false));
+        assertThat(new PathPattern("*.version").matches(new String[] { "version" }), is(false));
+        assertThat(new PathPattern("*.version").matchesBelow(new String[] { "customer", "name" }), is(false));
+    }
+
+    @Test
+    public void shouldSerializeCollectionOfMixedSubclasses() {
+        String expectedResult = "{\"hardDiskList\":[{\"capacity\":500,\"id\":1,\"name\":\"HD 1\",\"creationDate\":\""
+                + currentDateAsStr + "\"},{\"id\":2,\"name\":\"Product 2\",\"creationDate\":\"" + currentDateAsStr
+                + "\"},{\"capacity\":750,\"id\":3,\"name\":\"HD 3\",\"creationDate\":\"" + currentDateAsStr + "\"}]}";
+
+        List<Product> products = new ArrayList<Product>();
+        products.add(new HardDisk(1L, "HD 1", currentDate, 500));
+        products.add(createProduct(2L));
+        products.add(new HardDisk(3L, "HD 3", currentDate, 750));
+
+        jacksonSerialization.from(products).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeNullElementsOfCollection() {
+        String expectedResult = "{\"productList\":[{\"id\":1,\"name\":\"Product 1\"},null]}";
+
+        jacksonSerialization.from(Arrays.asList(new Product(1L, "Product 1"), null)).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeArrayOfPojo() {
+        String expectedResult = "{\"productList\":[{\"id\":1,\"name\":\"Product 1\"},null,{\"id\":2,\"name\":\"Product 2\"}]}";
+
+        jacksonSerialization.from(new Product[] { new Product(1L, "Product 1"), null, new Product(2L, "Product 2") })
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializePrimitiveArray() {
+        String expectedResult = "{\"longList\":[1,2,3]}";
+
+        jacksonSerialization.from(new long[] { 1, 2, 3 }).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializePrimitiveArrayWithoutRoot() {
+        String expectedResult = "[1.5,2.0]";
+
+        jacksonSerialization.withoutRoot().from(new double[] { 1.5, 2 }).serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeArrayAttributes() {
+        String expectedResult = "{\"catalog\":{\"id\":1,\"prices\":[9.9,10.5],\"products\":[{\"name\":\"Product 1\","
+                + "\"group\":{\"id\":1,\"name\":\"Group 1\"}}]}}";
+
+        Catalog catalog = new Catalog(1L, new double[] { 9.9, 10.5 }, createProductWithGroup(1L, 1L));
+
+        jacksonSerialization.from(catalog).include("prices", "products.name", "products.group").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldSerializeArraysWhenIncluded() {
+        String expectedResult = "{\"document\":{\"id\":1,\"pages\":[1,2],\"tags\":[\"a\"]}}";
+
+        Document document = new Document(1L, null, null, new int[] { 1, 2 }, new String[] { "a" });
+
+        jacksonSerialization.from(document).include("pages", "tags").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldIncludeFieldsOfMapValues() {
+        String expectedResult = "{\"inventory\":{\"id\":1,\"productsBySku\":{\"P1\":{\"name\":\"Product 1\"},"
+                + "\"HD2\":{\"name\":\"HD 2\",\"group\":{\"name\":\"Group 1\"}}}}}";
+
+        Inventory inventory = new Inventory(1L);
+        inventory.getProductsBySku().put("P1", createProduct(1L));
+        inventory.getProductsBySku().put("HD2", new HardDisk(2L, "HD 2", currentDate, 500, createGroup(1L)));
+        inventory.getProductsBySku().put("P3", null);
+
+        jacksonSerialization.from(inventory).include("productsBySku.name", "productsBySku.group.name").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldIncludePrimitiveFieldsOfMapValues() {
+        String expectedResult = "{\"inventory\":{\"id\":1,\"productsBySku\":{\"P1\":{\"id\":1,\"name\":\"Product 1\","
+                + "\"creationDate\":\"" + currentDateAsStr + "\"}}}}";
+
+        Inventory inventory = new Inventory(1L);
+        inventory.getProductsBySku().put("P1", createProductWithGroup(1L, 1L));
+
+        jacksonSerialization.from(inventory).include("productsBySku").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    static class FakeLazinessInspector implements LazinessInspector {
+        private final List<Integer> batches = new ArrayList<Integer>();
+
+        @Override
+        public boolean isInitialized(Object value) {
+            return !(value instanceof LazyGroup) || ((LazyGroup) value).isLoaded();
+        }
+
+        @Override
+        public Object getIdentifier(Object proxy) {
+            return ((LazyGroup) proxy).getId();
+        }
+
+        @Override
+        public void initialize(Collection<Object> values) {
+            batches.add(values.size());
+            for (Object value : values) {
+                ((LazyGroup) value).load();
+            }
+        }
+    }
+
+    private List<Product> createProductsWithLazyGroups() {
+        List<Product> products = new ArrayList<Product>();
+        for (long id = 1; id <= 3; id++) {
+            Product product = new Product(id, "Product " + id);
+            product.setGroup(new LazyGroup(id, "Group " + id));
+            products.add(product);
+        }
+        return products;
+    }
+
+    @Test
+    public void shouldSkipLazyValuesNotLoaded() {
+        String expectedResult = "{\"productList\":[{\"id\":1,\"name\":\"Product 1\"},{\"id\":2,\"name\":\"Product 2\"},"
+                + "{\"id\":3,\"name\":\"Product 3\"}]}";
+
+        List<Product> products = createProductsWithLazyGroups();
+
+        jacksonSerialization.lazyLoading(LazyLoading.SKIP, new FakeLazinessInspector()).from(products).include("group")
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+        for (Product product : products) {
+            assertThat(((LazyGroup) product.getGroup()).isLoaded(), is(false));
+        }
+    }
+
+    @Test
+    public void shouldWriteIdentifierOfLazyValuesNotLoaded() {
+        String expectedResult = "{\"productList\":[{\"id\":1,\"name\":\"Product 1\",\"group\":1},"
+                + "{\"id\":2,\"name\":\"Product 2\",\"group\":2},{\"id\":3,\"name\":\"Product 3\",\"group\":3}]}";
+
+        jacksonSerialization.lazyLoading(LazyLoading.IDENTIFIER, new FakeLazinessInspector())
+                .from(createProductsWithLazyGroups()).include("group").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
+    @Test
+    public void shouldLoadLazyValuesOfCollectionInBatch() {
+        String expectedResult = "{\"productList\":[{\"id\":1,\"name\":\"Product 1\",\"group\":{\"id\":1,\"name\":\"Group 1\"}},"
+                + "{\"id\":2,\"name\":\"Product 2\",\"group\":{\"id\":2,\"name\":\"Group 2\"}},"
+                + "{\"id\":3,\"name\":\"Product 3\",\"group\":{\"id\":3,\"name\":\"Group 3\"}}]}";
+
+        FakeLazinessInspector inspector = new FakeLazinessInspector();
+        List<Product> products = createProductsWithLazyGroups();
+
+        jacksonSerialization.lazyLoading(LazyLoading.BATCH, inspector).from(products).include("group").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+        assertThat(inspector.batches, is(equalTo(Arrays.asList(3))));
+        for (Product product : products) {
+            assertThat(((LazyGroup) product.getGroup()).isLoadedOnAccess(), is(false));
+        }
+    }
+
+    @Test
+    public void shouldLoadLazyValuesOnAccessByDefault() {
+        List<Product> products = createProductsWithLazyGroups();
+
+        jacksonSerialization.from(products).include("group").serialize();
+        for (Product product : products) {
+            assertThat(((LazyGroup) product.getGroup()).isLoadedOnAccess(), is(true));
+        }
+    }
+
+    @Test
+    public void shouldDescribeProjectionBeforeSerializing() {
+        JacksonSerializer serializer = new JacksonSerializer(new PrintWriter(output), null);
+        serializer.from(createOrderWithProducts()).include("customer.address", "products").exclude("customer.id");
+
+        ProjectionDescriptor descriptor = serializer.describe();
+        assertThat(descriptor.getRootType(), is(equalTo((Object) Order.class)));
+        assertThat(descriptor.getLeafPaths().toString(), is(equalTo("[id, customer.address.street, customer.address.city, "
+                + "customer.address.zipCode, products.id, products.name, products.creationDate, products.data, products.image]")));
+        assertThat(descriptor.getAssociationPaths().toString(), is(equalTo("[customer, customer.address, products]")));
+
+        serializer.exclude("products");
+        assertThat(serializer.describe().contains("products.id"), is(false));
+    }
+
+    @Test
+    public void shouldDescribeProjectionWithoutObject() {
+        ProjectionDescriptor descriptor = ProjectionDescriptor.of(Product.class, new String[] { "group" },
+                new String[] { "**.id" });
+
+        assertThat(descriptor.getLeafPaths().toString(), is(equalTo("[name, creationDate, data, image, group.name]")));
+        assertThat(descriptor.getAssociationPaths().toString(), is(equalTo("[group]")));
+        assertThat(descriptor.isRecursive(), is(false));
+    }
+
+    @Test
+    public void shouldDescribeProfile() {
+        ProjectionDescriptor descriptor = ProfileRegistry.getInstance().getProfile(Order.class, "summary").getDescriptor();
+
+        assertThat(descriptor.getRootType(), is(equalTo((Object) Order.class)));
+        assertThat(descriptor.getLeafPaths().toString(), is(equalTo("[customer.name]")));
+        assertThat(descriptor.getAssociationPaths().toString(), is(equalTo("[customer]")));
+    }
+
+    @Test
+    public void shouldSerializeCollectionAsNDJSON() {
+        String expectedResult = "{\"id\":1,\"name\":\"Product 1\",\"group\":{\"name\":\"Group 1\"}}\n"
+                + "{\"id\":2,\"name\":\"Product 2\",\"group\":{\"name\":\"Group 2\"}}\n";
+
+        List<Product> products = new ArrayList<Product>();
+        products.add(createProductWithGroup(1L, 1L));
+        products.add(createProductWithGroup(2L, 2L));
+
+        new JacksonNDJSONSerialization(response).from(products).include("group").exclude("creationDate", "group.id")
+                .serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+        verify(response).setContentType("application/x-ndjson");
+    }
+
+    @Test
+    public void shouldSerializeIteratorAsNDJSON() {
+        String expectedResult = "null\n{\"id\":1,\"name\":\"Product 1\"}\n{\"id\":2,\"name\":\"Product 2\"}\n";
+
+        Iterator<Product> products = Arrays.asList(null, createProduct(1L), createProduct(2L)).iterator();
+
+        new JacksonNDJSONSerialization(response).from(products).exclude("creationDate").serialize();
+        assertThat(jsonResult(), is(equalTo(expectedResult)));
+    }
+
 }
@@ -0,0 +1,108 @@
+package com.github.francofabio.vraptor.jackson.warmup;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.AccessibleObject;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.caelum.vraptor.Consumes;
+import br.com.caelum.vraptor.Resource;
+import br.com.caelum.vraptor.http.ParameterNameProvider;
+import br.com.caelum.vraptor.resource.DefaultResourceClass;
+import br.com.caelum.vraptor.resource.DefaultResourceMethod;
+
+import com.github.francofabio.vraptor.jackson.deserialization.JacksonDeserialization;
+import com.github.francofabio.vraptor.jackson.model.Customer;
+import com.github.francofabio.vraptor.jackson.model.Group;
+import com.github.francofabio.vraptor.jackson.serialization.JsonProfile;
+import com.github.francofabio.vraptor.jackson.serialization.ProfileRegistry;
+
+public class JacksonWarmUpTest {
+
+    private ParameterNameProvider provider;
+    private ServletContext context;
+
+    @Before
+    public void setup() {
+        provider = mock(ParameterNameProvider.class);
+        context = mock(ServletContext.class);
+    }
+
+    @Resource
+    @JsonProfile(name = "warmed", type = Customer.class, include = "address")
+    public static class CustomerController {
+
+        @Consumes("application/json")
+        public void add(Customer customer) {}
+
+        public void list() {}
+
+    }
+
+    @Resource
+    public static class GroupController {
+
+        @Consumes
+        public void add(Group group) {}
+
+    }
+
+    @Test
+    public void shouldPrecompileMethodsThatConsumeJson() throws Exception {
+        when(context.getInitParameter(JacksonWarmUp.ENABLED_PARAMETER)).thenReturn("true");
+        when(provider.parameterNamesFor(any(AccessibleObject.class))).thenReturn(new String[] {"customer"});
+
+        new JacksonWarmUp(provider, context).handle(CustomerController.class);
+        verify(provider, times(1)).parameterNamesFor(CustomerController.class.getMethod("add", Customer.class));
+
+        DefaultResourceMethod add = new DefaultResourceMethod(new DefaultResourceClass(CustomerController.class),
+                CustomerController.class.getMethod("add", Customer.class));
+        new JacksonDeserialization(provider).deserialize(new ByteArrayInputStream("{}".getBytes()), add);
+        verify(provider, times(1)).parameterNamesFor(CustomerController.class.getMethod("add", Customer.class));
+    }
+
+    @Test
+    public void shouldCompileProfilesDeclaredOnResources() throws Exception {
+        when(context.getInitParameter(JacksonWarmUp.ENABLED_PARAMETER)).thenReturn("true");
+        when(provider.parameterNamesFor(any(AccessibleObject.class))).thenReturn(new String[] {"customer"});
+
+        new JacksonWarmUp(provider, context).handle(CustomerController.class);
+
+        assertThat(ProfileRegistry.getInstance().getProfile(Customer.class, "warmed"), is(notNullValue()));
+    }
+
+    @Test
+    public void shouldStopTheThreadsWhenDestroyed() throws Exception {
+        when(context.getInitParameter(JacksonWarmUp.ENABLED_PARAMETER)).thenReturn("true");
+        when(context.getInitParameter(JacksonWarmUp.THREADS_PARAMETER)).thenReturn("2");
+        when(provider.parameterNamesFor(any(AccessibleObject.class))).thenReturn(new String[] {"group"});
+
+        JacksonWarmUp warmUp = new JacksonWarmUp(provider, context);
+        warmUp.handle(GroupController.class);
+        warmUp.shutdown();
+
+        assertThat(warmUp.getExecutor().awaitTermination(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void shouldDoNothingWhenDisabled() throws Exception {
+        new JacksonWarmUp(provider, context).handle(GroupController.class);
+
+        verify(provider, never()).parameterNamesFor(any(AccessibleObject.class));
+    }
+
+}